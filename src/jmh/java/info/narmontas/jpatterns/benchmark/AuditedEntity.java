@@ -0,0 +1,42 @@
+package info.narmontas.jpatterns.benchmark;
+
+public class AuditedEntity extends BaseEntity {
+    private String createdBy;
+    private String updatedBy;
+    private int version;
+
+    public AuditedEntity() {
+    }
+
+    public AuditedEntity(long id, long createdAt, long updatedAt, String createdBy,
+            String updatedBy, int version) {
+        super(id, createdAt, updatedAt);
+        this.createdBy = createdBy;
+        this.updatedBy = updatedBy;
+        this.version = version;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public String getUpdatedBy() {
+        return updatedBy;
+    }
+
+    public void setUpdatedBy(String updatedBy) {
+        this.updatedBy = updatedBy;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+}
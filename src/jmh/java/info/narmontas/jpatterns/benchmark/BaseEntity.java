@@ -0,0 +1,43 @@
+package info.narmontas.jpatterns.benchmark;
+
+/**
+ * Root of the DeepPojo hierarchy.
+ */
+public class BaseEntity {
+    private long id;
+    private long createdAt;
+    private long updatedAt;
+
+    public BaseEntity() {
+    }
+
+    public BaseEntity(long id, long createdAt, long updatedAt) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,101 @@
+package info.narmontas.jpatterns.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Objects built from column arrays: generated buildAll (one builder per batch)
+ * compared with a builder per object and with no argument constructor + setters.</p>
+ * <p>Scores are per batch of {@code size} objects.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BatchBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private long[] ids;
+    private long[] timestamps;
+    private int[] versions;
+    private boolean[] active;
+    private String[] names;
+    private String[] codes;
+
+    @Setup
+    public void setUp() {
+        ids = new long[size];
+        timestamps = new long[size];
+        versions = new int[size];
+        active = new boolean[size];
+        names = new String[size];
+        codes = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+            timestamps[i] = 1598000000000L + i;
+            versions[i] = i % 7;
+            active[i] = i % 2 == 0;
+            names[i] = "name" + i;
+            codes[i] = "code" + (i % 100);
+        }
+    }
+
+    @Benchmark
+    public DeepPojo[] buildAll() {
+        return DeepPojoBuilder.buildAll(size, ids, timestamps, timestamps, names, names, versions,
+                names, null, codes, active);
+    }
+
+    @Benchmark
+    public DeepPojo[] builderPerObject() {
+        DeepPojo[] result = new DeepPojo[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = DeepPojoBuilder.create()
+                    .setId(ids[i])
+                    .setCreatedAt(timestamps[i])
+                    .setUpdatedAt(timestamps[i])
+                    .setVersion(versions[i])
+                    .setActive(active[i])
+                    .setCreatedBy(names[i])
+                    .setUpdatedBy(names[i])
+                    .setName(names[i])
+                    .setCode(codes[i])
+                    .build();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public DeepPojo[] setters() {
+        DeepPojo[] result = new DeepPojo[size];
+        for (int i = 0; i < size; i++) {
+            DeepPojo pojo = new DeepPojo();
+            pojo.setId(ids[i]);
+            pojo.setCreatedAt(timestamps[i]);
+            pojo.setUpdatedAt(timestamps[i]);
+            pojo.setVersion(versions[i]);
+            pojo.setActive(active[i]);
+            pojo.setCreatedBy(names[i]);
+            pojo.setUpdatedBy(names[i]);
+            pojo.setName(names[i]);
+            pojo.setCode(codes[i]);
+            result[i] = pojo;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,228 @@
+package info.narmontas.jpatterns.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Generated builders compared with hand-written construction
+ * (no argument constructor + setters and all arguments constructor).</p>
+ * <p>Run with: ./gradlew jmh (gc profiler is enabled in build.gradle,
+ * so allocation rate is reported together with throughput and ns/op).</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BuilderBenchmark {
+
+    private static final int COLLECTION_SIZE = 8;
+
+    // Non final fields, so JIT cannot constant-fold the inputs.
+    private long id = 42L;
+    private int quantity = 3;
+    private double price = 19.99;
+    private boolean active = true;
+    private long timestamp = 1598000000000L;
+    private String name = "name";
+    private String code = "code";
+    private String text = "text";
+    private String[] tags = {"a", "b", "c", "d", "e", "f", "g", "h"};
+
+
+    // Wide POJO
+
+    @Benchmark
+    public WidePojo wideBuilder() {
+        return WidePojoBuilder.create()
+                .setId(id)
+                .setQuantity(quantity)
+                .setPrice(price)
+                .setActive(active)
+                .setName(name)
+                .setCode(code)
+                .setCurrency(code)
+                .setDescription(text)
+                .setCreatedAt(timestamp)
+                .setUpdatedAt(timestamp)
+                .setPriority(quantity)
+                .setVersion(quantity)
+                .setDiscount(price)
+                .setTax(price)
+                .setCategory(text)
+                .setOwner(name)
+                .build();
+    }
+
+    @Benchmark
+    public WidePojo wideReusableBuilder() {
+        return WidePojoBuilder.reusable()
+                .setId(id)
+                .setQuantity(quantity)
+                .setPrice(price)
+                .setActive(active)
+                .setName(name)
+                .setCode(code)
+                .setCurrency(code)
+                .setDescription(text)
+                .setCreatedAt(timestamp)
+                .setUpdatedAt(timestamp)
+                .setPriority(quantity)
+                .setVersion(quantity)
+                .setDiscount(price)
+                .setTax(price)
+                .setCategory(text)
+                .setOwner(name)
+                .build();
+    }
+
+    @Benchmark
+    public WidePojo wideSetters() {
+        WidePojo pojo = new WidePojo();
+        pojo.setId(id);
+        pojo.setQuantity(quantity);
+        pojo.setPrice(price);
+        pojo.setActive(active);
+        pojo.setName(name);
+        pojo.setCode(code);
+        pojo.setCurrency(code);
+        pojo.setDescription(text);
+        pojo.setCreatedAt(timestamp);
+        pojo.setUpdatedAt(timestamp);
+        pojo.setPriority(quantity);
+        pojo.setVersion(quantity);
+        pojo.setDiscount(price);
+        pojo.setTax(price);
+        pojo.setCategory(text);
+        pojo.setOwner(name);
+        return pojo;
+    }
+
+    @Benchmark
+    public WidePojo wideConstructor() {
+        return new WidePojo(id, quantity, price, active, name, code, code, text,
+                timestamp, timestamp, quantity, quantity, price, price, text, name);
+    }
+
+
+    // Deep POJO
+
+    @Benchmark
+    public DeepPojo deepBuilder() {
+        return DeepPojoBuilder.create()
+                .setId(id)
+                .setCreatedAt(timestamp)
+                .setUpdatedAt(timestamp)
+                .setCreatedBy(name)
+                .setUpdatedBy(name)
+                .setVersion(quantity)
+                .setName(name)
+                .setDescription(text)
+                .setCode(code)
+                .setActive(active)
+                .build();
+    }
+
+    @Benchmark
+    public DeepPojo deepSetters() {
+        DeepPojo pojo = new DeepPojo();
+        pojo.setId(id);
+        pojo.setCreatedAt(timestamp);
+        pojo.setUpdatedAt(timestamp);
+        pojo.setCreatedBy(name);
+        pojo.setUpdatedBy(name);
+        pojo.setVersion(quantity);
+        pojo.setName(name);
+        pojo.setDescription(text);
+        pojo.setCode(code);
+        pojo.setActive(active);
+        return pojo;
+    }
+
+    @Benchmark
+    public DeepPojo deepConstructor() {
+        return new DeepPojo(id, timestamp, timestamp, name, name, quantity, name, text, code, active);
+    }
+
+
+    // Collection POJO
+
+    @Benchmark
+    public CollectionPojo collectionBuilder() {
+        CollectionPojoBuilder builder = CollectionPojoBuilder.create()
+                .setId(id);
+        for (int i = 0; i < COLLECTION_SIZE; i++) {
+            builder.addTags(tags[i]);
+            builder.addRoles(tags[i]);
+            builder.addLineItems(id + i);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public CollectionPojo collectionBulkBuilder() {
+        CollectionPojoBuilder builder = CollectionPojoBuilder.create()
+                .setId(id)
+                .addTags(tags)
+                .addRoles(tags)
+                .expectedLineItemsSize(COLLECTION_SIZE);
+        for (int i = 0; i < COLLECTION_SIZE; i++) {
+            builder.addLineItems(id + i);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public CollectionPojo collectionSetters() {
+        CollectionPojo pojo = new CollectionPojo();
+        pojo.setId(id);
+        pojo.setTags(tags());
+        pojo.setRoles(roles());
+        pojo.setLineItems(lineItems());
+        pojo.setNotes(new ArrayList<>());
+        return pojo;
+    }
+
+    @Benchmark
+    public CollectionPojo collectionConstructor() {
+        return new CollectionPojo(id, tags(), roles(), lineItems(), new ArrayList<>());
+    }
+
+    private List<String> tags() {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < COLLECTION_SIZE; i++) {
+            list.add(tags[i]);
+        }
+        return list;
+    }
+
+    private Set<String> roles() {
+        Set<String> set = new HashSet<>();
+        for (int i = 0; i < COLLECTION_SIZE; i++) {
+            set.add(tags[i]);
+        }
+        return set;
+    }
+
+    private List<Long> lineItems() {
+        List<Long> list = new ArrayList<>();
+        for (int i = 0; i < COLLECTION_SIZE; i++) {
+            list.add(id + i);
+        }
+        return list;
+    }
+}
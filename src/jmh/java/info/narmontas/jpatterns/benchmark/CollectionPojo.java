@@ -0,0 +1,70 @@
+package info.narmontas.jpatterns.benchmark;
+
+import info.narmontas.jpatterns.annotation.BuilderPattern;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collection-heavy POJO: java.util.List and java.util.Set properties.
+ */
+@BuilderPattern
+public class CollectionPojo {
+    private long id;
+    private List<String> tags;
+    private Set<String> roles;
+    private List<Long> lineItems;
+    private List<String> notes;
+
+    public CollectionPojo() {
+    }
+
+    public CollectionPojo(long id, List<String> tags, Set<String> roles, List<Long> lineItems,
+            List<String> notes) {
+        this.id = id;
+        this.tags = tags;
+        this.roles = roles;
+        this.lineItems = lineItems;
+        this.notes = notes;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(Set<String> roles) {
+        this.roles = roles;
+    }
+
+    public List<Long> getLineItems() {
+        return lineItems;
+    }
+
+    public void setLineItems(List<Long> lineItems) {
+        this.lineItems = lineItems;
+    }
+
+    public List<String> getNotes() {
+        return notes;
+    }
+
+    public void setNotes(List<String> notes) {
+        this.notes = notes;
+    }
+}
@@ -0,0 +1,38 @@
+package info.narmontas.jpatterns.benchmark;
+
+import info.narmontas.jpatterns.annotation.BuilderPattern;
+
+/**
+ * Deep POJO: properties inherited through three parent classes.
+ */
+@BuilderPattern(batch = true)
+public class DeepPojo extends NamedEntity {
+    private String code;
+    private boolean active;
+
+    public DeepPojo() {
+    }
+
+    public DeepPojo(long id, long createdAt, long updatedAt, String createdBy, String updatedBy,
+            int version, String name, String description, String code, boolean active) {
+        super(id, createdAt, updatedAt, createdBy, updatedBy, version, name, description);
+        this.code = code;
+        this.active = active;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+}
@@ -0,0 +1,32 @@
+package info.narmontas.jpatterns.benchmark;
+
+public class NamedEntity extends AuditedEntity {
+    private String name;
+    private String description;
+
+    public NamedEntity() {
+    }
+
+    public NamedEntity(long id, long createdAt, long updatedAt, String createdBy, String updatedBy,
+            int version, String name, String description) {
+        super(id, createdAt, updatedAt, createdBy, updatedBy, version);
+        this.name = name;
+        this.description = description;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+}
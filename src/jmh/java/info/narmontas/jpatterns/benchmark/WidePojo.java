@@ -0,0 +1,178 @@
+package info.narmontas.jpatterns.benchmark;
+
+import info.narmontas.jpatterns.annotation.BuilderPattern;
+
+/**
+ * Wide POJO: 16 properties of primitive and String types.
+ */
+@BuilderPattern(reusable = true)
+public class WidePojo {
+    private long id;
+    private int quantity;
+    private double price;
+    private boolean active;
+    private String name;
+    private String code;
+    private String currency;
+    private String description;
+    private long createdAt;
+    private long updatedAt;
+    private int priority;
+    private int version;
+    private double discount;
+    private double tax;
+    private String category;
+    private String owner;
+
+    public WidePojo() {
+    }
+
+    public WidePojo(long id, int quantity, double price, boolean active, String name, String code,
+            String currency, String description, long createdAt, long updatedAt, int priority,
+            int version, double discount, double tax, String category, String owner) {
+        this.id = id;
+        this.quantity = quantity;
+        this.price = price;
+        this.active = active;
+        this.name = name;
+        this.code = code;
+        this.currency = currency;
+        this.description = description;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.priority = priority;
+        this.version = version;
+        this.discount = discount;
+        this.tax = tax;
+        this.category = category;
+        this.owner = owner;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public double getDiscount() {
+        return discount;
+    }
+
+    public void setDiscount(double discount) {
+        this.discount = discount;
+    }
+
+    public double getTax() {
+        return tax;
+    }
+
+    public void setTax(double tax) {
+        this.tax = tax;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+}
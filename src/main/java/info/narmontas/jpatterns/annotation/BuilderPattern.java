@@ -12,8 +12,79 @@ import java.lang.annotation.Target;
  * with names: POJO name + "Builder".</p>
  * <p>Ex., if annotated class name is "Person"
  * then builder class with the name "PersonBuilder" will be created.</p>
+ * <p>Records are supported as well: builder collects record components
+ * and calls the canonical constructor once.</p>
+ * <p>The annotation can be added to one constructor of the class instead: builder
+ * collects constructor parameters and calls the constructor once
+ * (strategy is ignored for records and annotated constructors).</p>
  */
-@Target(ElementType.TYPE)
+@Target({ElementType.TYPE, ElementType.CONSTRUCTOR})
 @Retention(RetentionPolicy.SOURCE)
 public @interface BuilderPattern {
+
+    /**
+     * How builder creates POJO instance. Setters are used by default.
+     * @return ConstructionStrategy
+     */
+    ConstructionStrategy strategy() default ConstructionStrategy.SETTERS;
+
+    /**
+     * <p>If true, builder gets reset() method and static reusable() method.</p>
+     * <p>reusable() returns builder instance confined to the current thread
+     * (reset to default values), so loops can build many objects with one builder.
+     * Reusable builder should not leave the thread and should not be kept between builds.
+     * If reusable() is called again before build() or reset() (nested builds), a new builder is returned.</p>
+     * @return boolean
+     */
+    boolean reusable() default false;
+
+    /**
+     * <p>If true, class named POJO name + "Equality" is generated with static
+     * equals(POJO, Object), hashCode(POJO) and toString(POJO) methods.
+     * POJO can delegate its own methods to them.</p>
+     * <p>Properties are read through getters, primitives are compared and hashed without boxing.
+     * Getters annotated with @BuilderPatternIgnore are not compared.</p>
+     * @return boolean
+     */
+    boolean equality() default false;
+
+    /**
+     * <p>If true, class named POJO name + "Codec" is generated with static write and read methods
+     * encoding properties to compact binary form (java.io.DataOutput/DataInput or java.nio.ByteBuffer)
+     * without reflection. Objects are read back through the builder.</p>
+     * <p>Supported property types: primitives, boxed primitives, String, enums, primitive arrays
+     * and java.util.List/Set of boxed primitives, Strings or enums. Every property should have a getter.</p>
+     * @return boolean
+     */
+    boolean codec() default false;
+
+    /**
+     * <p>If true, class named POJO name + "Properties" is generated with int constant per property
+     * (property id), NAMES list, idOf(String), typeOf(int), get(POJO, int) and set(Builder, int, Object)
+     * methods implemented as switches. Mapping, diffing or export code can access properties by name
+     * or id without java.beans.Introspector and reflection.</p>
+     * <p>Every property should have a getter.</p>
+     * @return boolean
+     */
+    boolean properties() default false;
+
+    /**
+     * <p>If true, class named POJO name + "RowReader" is generated. It binds column labels of
+     * java.sql.ResultSet (or CSV header) to builder setters once and reads every row into one reused
+     * builder, primitive columns are read without boxing (getLong, Long.parseLong, ...).</p>
+     * <p>Supported property types: primitives, boxed primitives, String and enums (stored as names).
+     * Column labels are matched to property names ignoring case and underscores.
+     * CSV fields are separated by commas, quoted fields may contain commas, line breaks and
+     * doubled quotes.</p>
+     * @return boolean
+     */
+    boolean rowReader() default false;
+
+    /**
+     * <p>If true, static buildAll(n, columns...) and buildInto(target, offset, n, columns...) methods
+     * are added to the builder. They build n objects from column arrays (one array per property,
+     * null array leaves the property unset) with one builder instance for the whole batch.</p>
+     * @return boolean
+     */
+    boolean batch() default false;
 }
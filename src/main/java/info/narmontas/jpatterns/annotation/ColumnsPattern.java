@@ -0,0 +1,21 @@
+package info.narmontas.jpatterns.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>ColumnsPattern annotation can be added to POJO classes and records.</p>
+ * <p>Columns class named type name + "Columns" is generated in the same package.
+ * It stores objects as structure of arrays: one primitive or reference array per property,
+ * add(POJO) copies properties through getters, properties are read and written by index
+ * and forEach visits indexes without creating objects. Builder (type name + "Builder")
+ * is generated as well, Columns class uses it to create an object of one row.</p>
+ * <p>Ex., if annotated class name is "Score"
+ * then classes "ScoreColumns" and "ScoreBuilder" will be created.</p>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface ColumnsPattern {
+}
@@ -0,0 +1,18 @@
+package info.narmontas.jpatterns.annotation;
+
+/**
+ * <p>Defines how generated builder creates POJO instance in build() method.</p>
+ * <ul>
+ *     <li>SETTERS - no argument constructor and one setter call per property (default).</li>
+ *     <li>CONSTRUCTOR - single call of the constructor whose parameters match the properties
+ *     by name and type (ex., Person(long id, String name) for getId() and getName()).</li>
+ *     <li>FIELDS - no argument constructor and direct field assignments. Fields should be named
+ *     after properties and be visible from the builder (not private and not final,
+ *     declared in the same package).</li>
+ * </ul>
+ */
+public enum ConstructionStrategy {
+    SETTERS,
+    CONSTRUCTOR,
+    FIELDS
+}
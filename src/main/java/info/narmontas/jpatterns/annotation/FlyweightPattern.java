@@ -0,0 +1,22 @@
+package info.narmontas.jpatterns.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>FlyweightPattern annotation can be added to POJO classes and records
+ * which properties are primitives only.</p>
+ * <p>Flyweight class named type name + "Flyweight" is generated in the same package.
+ * Flyweight reads and writes properties of one slot of a java.nio.ByteBuffer
+ * (fixed layout, SIZE bytes per slot), so many objects can be stored in one
+ * (direct) buffer without allocating an object per item. Builder (type name + "Builder")
+ * is generated as well and gets writeTo(ByteBuffer, int) method writing the slot directly.</p>
+ * <p>Ex., if annotated class name is "Quote"
+ * then classes "QuoteFlyweight" and "QuoteBuilder" will be created.</p>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface FlyweightPattern {
+}
@@ -0,0 +1,30 @@
+package info.narmontas.jpatterns.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>ValuePattern annotation can be added to interfaces and abstract classes
+ * which abstract methods are getters only.</p>
+ * <p>Immutable implementation named type name + "Value" (final class with final fields,
+ * equals(), hashCode() and toString()) and builder named type name + "Builder"
+ * are generated in the same package.</p>
+ * <p>Ex., if annotated interface name is "Person"
+ * then classes "PersonValue" and "PersonBuilder" will be created.</p>
+ * <p>Abstract class should have a no argument constructor.
+ * Getters annotated with @BuilderPatternIgnore cannot be abstract.</p>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface ValuePattern {
+
+    /**
+     * If true (default), hashCode() of the value class is computed on the first call
+     * and stored in the instance (one int field more per instance). Cached value stays valid
+     * because the value class keeps its own copies of collections and arrays.
+     * @return boolean
+     */
+    boolean cacheHashCode() default true;
+}
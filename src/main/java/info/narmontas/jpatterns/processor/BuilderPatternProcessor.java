@@ -1,71 +1,146 @@
 package info.narmontas.jpatterns.processor;
 
 import info.narmontas.jpatterns.annotation.BuilderPattern;
-import info.narmontas.jpatterns.annotation.BuilderPatternIgnore;
+import info.narmontas.jpatterns.annotation.ColumnsPattern;
+import info.narmontas.jpatterns.annotation.FlyweightPattern;
+import info.narmontas.jpatterns.annotation.ValuePattern;
 import info.narmontas.jpatterns.processor.utils.CodeGenerator;
-import info.narmontas.jpatterns.processor.utils.Encapsulation;
-import info.narmontas.jpatterns.processor.utils.Method;
+import info.narmontas.jpatterns.processor.utils.GenerationCache;
+import info.narmontas.jpatterns.processor.utils.MemberCache;
+import info.narmontas.jpatterns.processor.utils.MetricsReport;
+import info.narmontas.jpatterns.processor.utils.ProcessingStatistics;
+import info.narmontas.jpatterns.processor.utils.ProcessingStatistics.Phase;
+import info.narmontas.jpatterns.processor.utils.ProcessingStatistics.TypeMetrics;
+import info.narmontas.jpatterns.processor.utils.PropertyModel;
+import info.narmontas.jpatterns.processor.utils.SourceModel;
+import info.narmontas.jpatterns.processor.utils.SourceRenderer;
 import info.narmontas.jpatterns.processor.utils.Validator;
 
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.*;
-import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
+import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
 /**
  * Builder Pattern processor.
  *
  * Creates simple Builder for POJO classes. elements from parent class will be used as well.
+ *
+ * For interfaces and abstract classes annotated with @ValuePattern immutable value class
+ * (final fields, equals, cached hashCode, toString) is created together with the builder.
+ *
+ * For POJOs annotated with @BuilderPattern(codec = true) Codec class writing and reading
+ * compact binary form (DataOutput/DataInput, ByteBuffer) is created.
+ *
+ * For POJOs annotated with @BuilderPattern(properties = true) Properties class accessing
+ * properties by int id or name (switches, no reflection) is created.
+ *
+ * For POJOs annotated with @BuilderPattern(rowReader = true) RowReader class mapping
+ * ResultSet rows and CSV lines to objects through one reused builder is created.
+ *
+ * For POJOs and records annotated with @FlyweightPattern (primitive properties only) flyweight
+ * class over ByteBuffer slots is created and the builder can write to a slot.
+ *
+ * For POJOs and records annotated with @ColumnsPattern structure of arrays class
+ * (one array per property) is created.
+ *
+ * Records and classes with a constructor annotated with @BuilderPattern get builders
+ * calling that (canonical) constructor once.
+ *
+ * For POJOs annotated with @BuilderPattern(equality = true) Equality class with static
+ * equals, hashCode and toString methods is created.
+ *
+ * Processor is isolating (Gradle incremental annotation processing): every builder
+ * is generated from the annotated type and its parent classes only and the annotated
+ * type is passed to the Filer as originating element.
+ *
+ * Methods of parent classes shared by annotated types are resolved once per round (MemberCache).
+ *
+ * Property models are extracted on the compiler thread (javax.lang.model is not thread safe),
+ * sources are rendered from the shared SourceModel by one SourceRenderer per generated class
+ * on the compiler thread and streamed to the Filer.
+ * With parallelism option sources of the round are rendered on a fork-join pool and written
+ * to the Filer on the compiler thread in the order of annotated types.
+ *
+ * Supported options:
+ * -Ajpatterns.cache.dir=path - generated sources are cached in provided directory
+ * and reused while property model of the POJO is not changed.
+ * -Ajpatterns.parallelism=n - number of rendering threads (default is 1: sources are rendered
+ * on the compiler thread and streamed directly to the Filer), sources are buffered if n is greater than 1.
+ * -Ajpatterns.metrics=path.json - per-round, per-phase and per-type durations, property counts
+ * and numbers of generated characters are written to provided JSON file when processing is over.
  */
-@SupportedAnnotationTypes({"info.narmontas.jpatterns.annotation.BuilderPattern"})
+@SupportedAnnotationTypes({"info.narmontas.jpatterns.annotation.BuilderPattern",
+        "info.narmontas.jpatterns.annotation.ValuePattern",
+        "info.narmontas.jpatterns.annotation.FlyweightPattern",
+        "info.narmontas.jpatterns.annotation.ColumnsPattern"})
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 public class BuilderPatternProcessor extends AbstractProcessor {
 
+    public static final String CACHE_DIR_OPTION = "jpatterns.cache.dir";
+    public static final String PARALLELISM_OPTION = "jpatterns.parallelism";
+    public static final String METRICS_OPTION = "jpatterns.metrics";
+
     private Elements elementUtils;
     private Validator validator;
-
-    public final String listType = "java.util.List";
-    public final String setType = "java.util.Set";
-    public final String stringType = "java.lang.String";
-
-    public final HashMap<String, String> defaultValues = new HashMap<String, String>() {{
-            put(listType, " = new java.util.ArrayList<>()");
-            put(setType, " = new java.util.HashSet<>()");
-            put(stringType, " = \"\"");
-    }};
-
-    private CodeGenerator cg;
-    private HashMap<String, String> collections;
-    private HashMap<String, String> primitives;
-    private HashMap<String, String> references;
-
-    private String className;
-    private String packageName;
-    private String fullName;
-    private String initialClassFullName;
+    private GenerationCache cache;
+    private ProcessingStatistics statistics = ProcessingStatistics.disabled();
+    private int parallelism = 1;
+    private ForkJoinPool pool;
+    private String metricsFile;
 
 
     @Override
     public void init(ProcessingEnvironment processingEnvironment) {
         super.init(processingEnvironment);
         elementUtils = processingEnvironment.getElementUtils();
+        initCache(processingEnvironment.getOptions().get(CACHE_DIR_OPTION));
+        initParallelism(processingEnvironment.getOptions().get(PARALLELISM_OPTION));
+        initMetrics(processingEnvironment.getOptions().get(METRICS_OPTION));
     };
 
     @Override
     public Set<String> getSupportedAnnotationTypes() {
         Set<String> annotations = new LinkedHashSet<>();
         annotations.add(BuilderPattern.class.getCanonicalName());
+        annotations.add(ValuePattern.class.getCanonicalName());
+        annotations.add(FlyweightPattern.class.getCanonicalName());
+        annotations.add(ColumnsPattern.class.getCanonicalName());
         return annotations;
     }
 
+    /**
+     * Enables time and allocation statistics of the processing phases.
+     * @param statistics ProcessingStatistics
+     */
+    public void setStatistics(ProcessingStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public ProcessingStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        Set<String> options = new LinkedHashSet<>();
+        options.add(CACHE_DIR_OPTION);
+        options.add(PARALLELISM_OPTION);
+        options.add(METRICS_OPTION);
+        return options;
+    }
+
     @Override
     public SourceVersion getSupportedSourceVersion() {
         return SourceVersion.latestSupported();
@@ -73,279 +148,344 @@ public class BuilderPatternProcessor extends AbstractProcessor {
 
     @Override
     public boolean process(Set<? extends TypeElement> set, RoundEnvironment roundEnvironment) {
-        Set<? extends Element> builderTemplateAnnotated = roundEnvironment
-                .getElementsAnnotatedWith(BuilderPattern.class);
+        Set<Element> builderTemplateAnnotated = new LinkedHashSet<>(roundEnvironment
+                .getElementsAnnotatedWith(BuilderPattern.class));
+        builderTemplateAnnotated.addAll(roundEnvironment.getElementsAnnotatedWith(ValuePattern.class));
+        builderTemplateAnnotated.addAll(roundEnvironment.getElementsAnnotatedWith(FlyweightPattern.class));
+        builderTemplateAnnotated.addAll(roundEnvironment.getElementsAnnotatedWith(ColumnsPattern.class));
 
+        statistics.startRound();
         validator = new Validator(processingEnv);
+        MemberCache members = new MemberCache(elementUtils);
 
-        for (TypeElement type: ElementFilter.typesIn(builderTemplateAnnotated)) {
-            validator.checkForNoArgumentConstructor(type);
-        }
-
+        Set<TypeElement> types = new LinkedHashSet<>();
+        List<List<SourceFile>> sources = new ArrayList<>();
         for (Element element: builderTemplateAnnotated) {
-            validator.checkIfElementIsPOJO(element);
+            // @BuilderPattern on a constructor: builder of the enclosing class calls that constructor
+            ExecutableElement constructor = element.getKind() == ElementKind.CONSTRUCTOR
+                    ? (ExecutableElement) element
+                    : null;
+            Element typeElement = constructor != null ? element.getEnclosingElement() : element;
+            if (!(typeElement instanceof TypeElement)) {
+                continue;
+            }
+            TypeElement type = (TypeElement) typeElement;
+            if (!types.add(type)) {
+                // Type annotated with @ValuePattern, @FlyweightPattern or @ColumnsPattern only,
+                // its constructor has @BuilderPattern
+                if (element.getAnnotation(BuilderPattern.class) == null) {
+                    continue;
+                }
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "@BuilderPattern should be added either to the class " + type.getQualifiedName()
+                                + " or to one of its constructors.",
+                        element);
+                continue;
+            }
+            TypeMetrics metrics = statistics.startType(type.getQualifiedName().toString());
+            statistics.startPhase();
+            PropertyModel model = new PropertyModel(type, constructor, members, validator);
+            statistics.endPhase(Phase.MODEL, metrics);
+            statistics.startPhase();
+            boolean valid = validator.validate(model, metrics);
+            statistics.endPhase(Phase.VALIDATION, metrics);
+            if (valid) {
+                statistics.startPhase();
+                sources.add(getSources(model, metrics));
+                statistics.endPhase(Phase.GENERATION, metrics);
+            }
         }
 
-        for (Element element: builderTemplateAnnotated) {
-            createClass(element);
+        if (parallelism > 1 && sources.size() > 1) {
+            createFilesInParallel(sources);
+        } else {
+            for (List<SourceFile> typeSources: sources) {
+                typeSources.forEach(this::createFile);
+            }
+        }
+        statistics.endRound(types.size());
+
+        if (roundEnvironment.processingOver()) {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+            if (cache != null) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.NOTE,
+                        "Builder cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses.");
+            }
+            writeMetrics();
         }
 
         return false;
     }
 
-    private void createClass(Element element) {
-        cg = new CodeGenerator();
-        initNames(element);
-        cg.definePackage(packageName);
-        cg.defineClass(Encapsulation.PUBLIC, className);
-        initFields(element);
-        createFields();
-        setCollectionAdders();
-        HashMap<String, String> merged = merge();
-        setSetters(merged);
-        generateBuildMethod(merged);
-        generateCreateMethod();
-        generateFile();
-    }
-
-
-    // Helpers
-
-    private void initFields(Element element) {
-        collections = getCollections(element);
-        primitives = getPrimitives(element);
-        references = getReferences(element);
-    }
-
-    private void initNames(Element element) {
-        className = element.getSimpleName().toString() + "Builder";
-        List<PackageElement> packages =
-                ElementFilter.packagesIn(Collections.singletonList(element.getEnclosingElement()));
-
-        packageName = getPackageName(packages);
-
-        fullName =
-                getClassFullName(packageName, className);
-        initialClassFullName =
-                getClassFullName(packageName, element.getSimpleName().toString());
-    }
-
-    private void createFields() {
-        setCollectionsFields();
-        setPrimitivesFields();
-        setReferenceFields();
-    }
-
-    private HashMap<String, String> merge() {
-        return Stream.of(collections, primitives, references)
-                .flatMap(map -> map.entrySet().stream())
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (map1, map2) -> map1,
-                        HashMap::new));
+    // Everything that needs javax.lang.model is copied to the source model here, on the compiler thread.
+    // Cache signature is built from the source model, so it covers every renderer input.
+    private List<SourceFile> getSources(PropertyModel model, TypeMetrics metrics) {
+        SourceModel sourceModel = new SourceModel(model, validator);
+        String signature = cache != null ? sourceModel.getSignature() : null;
+        if (metrics != null) {
+            metrics.setProperties(model.getProperties().size());
+        }
+        List<SourceFile> sources = new ArrayList<>();
+        for (SourceRenderer renderer: sourceModel.getRenderers()) {
+            sources.add(new SourceFile(renderer.getName(), model.getType(), signature, metrics,
+                    renderer::render));
+        }
+        return sources;
     }
 
-
-
-    // Getters
-
-    private String getClassFullName(String packageName, String className) {
-        if (packageName == null || packageName.isEmpty()) {
-            return className;
+    // Without cache the source is streamed to the Filer writer (time is recorded as GENERATION),
+    // with cache it is buffered, so it can be stored as well.
+    private void createFile(SourceFile source) {
+        if (cache == null) {
+            statistics.startPhase();
+            generateFile(source, writer -> {
+                if (source.metrics == null) {
+                    source.renderer.accept(new CodeGenerator(writer));
+                    return;
+                }
+                CountingWriter counting = new CountingWriter(writer);
+                source.renderer.accept(new CodeGenerator(counting));
+                source.metrics.addSource(counting.count);
+            });
+            statistics.endPhase(Phase.GENERATION, source.metrics);
+            return;
         }
-        return packageName + "." + className;
-    }
 
-    private String getPackageName(List<PackageElement> packages) {
-        if (packages.size() == 0 || packages.get(0).isUnnamed()) {
-            return null;
-        } else {
-            return packages.get(0).getQualifiedName().toString();
+        statistics.startPhase();
+        String text = readCache(source);
+        if (text == null) {
+            text = source.render();
+            writeCache(source, text);
         }
-    }
+        statistics.endPhase(Phase.GENERATION, source.metrics);
 
-    private HashMap<String, String> getCollections(Element element) {
-        TypeElement te = elementUtils.getTypeElement(element.asType().toString());
-        return elementUtils.getAllMembers(te).stream()
-                .filter(this::getterPredicate)
-                .map(el -> (ExecutableElement) el)
-                .filter(this::collectionPredicate)
-                .collect(Collectors.toMap(
-                        el -> el.getSimpleName().toString(),
-                        el -> el.getReturnType().toString(),
-                        (el1, el2) -> el1,
-                        HashMap::new));
+        writeFile(source, text);
     }
 
-    private HashMap<String, String> getPrimitives(Element element) {
-        TypeElement te = elementUtils.getTypeElement(element.asType().toString());
-        return elementUtils.getAllMembers(te).stream()
-                .filter(this::getterPredicate)
-                .map(el -> (ExecutableElement) el)
-                .filter(el -> !collectionPredicate(el) && primitivePredicate(el))
-                .collect(Collectors.toMap(
-                        el -> el.getSimpleName().toString(),
-                        el -> el.getReturnType().toString(),
-                        (el1, el2) -> el1,
-                        HashMap::new));
+    // Sources of every annotated type are rendered to Strings by one pool task
+    // (renderer of the type is used by one thread), cache and Filer are used
+    // on the compiler thread only. GENERATION phase is the time the compiler
+    // thread reads the cache and waits for rendered sources, GENERATION of
+    // the type is the rendering time of its pool task. Bytes allocated by pool
+    // tasks are added to GENERATION and to the round.
+    private void createFilesInParallel(List<List<SourceFile>> sources) {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        ProcessingStatistics statistics = this.statistics;
+        statistics.startPhase();
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>(sources.size());
+        for (List<SourceFile> typeSources: sources) {
+            List<SourceFile> notCached = new ArrayList<>();
+            for (SourceFile source: typeSources) {
+                source.text = cache != null ? readCache(source) : null;
+                if (source.text == null) {
+                    notCached.add(source);
+                }
+            }
+            tasks.add(notCached.isEmpty() ? null : pool.submit(() -> {
+                long startBytes = statistics.threadAllocatedBytes();
+                notCached.forEach(SourceFile::render);
+                return statistics.threadAllocatedBytes() - startBytes;
+            }));
+        }
+        statistics.endPhase(Phase.GENERATION);
+
+        for (int i = 0; i < sources.size(); i++) {
+            List<SourceFile> typeSources = sources.get(i);
+            statistics.startPhase();
+            if (tasks.get(i) != null) {
+                try {
+                    statistics.addAllocatedBytes(Phase.GENERATION, tasks.get(i).join());
+                } catch (RuntimeException e) {
+                    statistics.endPhase(Phase.GENERATION);
+                    processingEnv.getMessager().printMessage(
+                            Diagnostic.Kind.ERROR,
+                            "Cannot generate " + typeSources.get(0).name + ": " + e,
+                            typeSources.get(0).originatingElement);
+                    continue;
+                }
+            }
+            if (cache != null) {
+                for (SourceFile source: typeSources) {
+                    if (!source.cached) {
+                        writeCache(source, source.text);
+                    }
+                }
+            }
+            statistics.endPhase(Phase.GENERATION);
+            for (SourceFile source: typeSources) {
+                if (source.metrics != null) {
+                    source.metrics.addPhaseNanos(Phase.GENERATION, source.renderNanos);
+                }
+                writeFile(source, source.text);
+            }
+        }
     }
 
-    private HashMap<String, String> getReferences(Element element) {
-        TypeElement te = elementUtils.getTypeElement(element.asType().toString());
-        return elementUtils.getAllMembers(te).stream()
-                .filter(this::getterPredicate)
-                .map(el -> (ExecutableElement) el)
-                .filter(el -> !collectionPredicate(el) && !primitivePredicate(el))
-                .collect(Collectors.toMap(
-                        el -> el.getSimpleName().toString(),
-                        el -> el.getReturnType().toString(),
-                        (el1, el2) -> el1,
-                        HashMap::new));
-    }
+    // Helpers
 
-    private String getFieldName(String accessorName) {
-        if (validator.getterOrSetterTypePredicate(accessorName, "get")
-                || validator.getterOrSetterTypePredicate(accessorName, "has")) {
-            return accessorName.substring(3, 4).toLowerCase() +
-                    accessorName.substring(4);
+    private void initCache(String cacheDir) {
+        if (cacheDir == null || cacheDir.isEmpty()) {
+            return;
         }
-        if (validator.getterOrSetterTypePredicate(accessorName, "is")) {
-            return accessorName.substring(2, 3).toLowerCase() +
-                    accessorName.substring(3);
+        try {
+            cache = new GenerationCache(Paths.get(cacheDir));
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.WARNING,
+                    "Cannot use builder cache directory " + cacheDir + ": " + e.getMessage());
         }
-        return accessorName;
     }
 
-    private String getCollectionDefaultValue(String collectionType) {
-        if (collectionType.startsWith(listType)) {
-            return defaultValues.get(listType);
-        } else if (collectionType.startsWith(setType)) {
-            return defaultValues.get(setType);
+    private void initParallelism(String value) {
+        parallelism = 1;
+        if (value == null || value.isEmpty()) {
+            return;
         }
-        return null;
-    }
-
-    private String getReferenceDefaultValue(String  referenceType) {
-        if(referenceType.startsWith(stringType)) {
-            return defaultValues.get(stringType);
+        try {
+            parallelism = Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.WARNING,
+                    "Wrong " + PARALLELISM_OPTION + " value " + value + ", " + parallelism + " is used.");
         }
-        return " = null";
     }
 
-
-    // Setters
-
-    private void setCollectionsFields() {
-        collections.forEach((name, type) -> {
-            cg.addField(Encapsulation.PRIVATE, type, getFieldName(name)
-                    + getCollectionDefaultValue(type));
-        });
+    private void initMetrics(String file) {
+        if (file == null || file.isEmpty()) {
+            return;
+        }
+        metricsFile = file;
+        if (!statistics.isEnabled()) {
+            statistics = new ProcessingStatistics();
+        }
     }
 
-    private void setPrimitivesFields() {
-        primitives.forEach((name, type) -> {
-            cg.addField(Encapsulation.PRIVATE, type, getFieldName(name));
-        });
+    private void writeMetrics() {
+        if (metricsFile == null) {
+            return;
+        }
+        try {
+            new MetricsReport(statistics).write(Paths.get(metricsFile));
+        } catch (IOException | RuntimeException e) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.WARNING,
+                    "Cannot write processor metrics " + metricsFile + ": " + e.getMessage());
+        }
     }
 
-    private void setReferenceFields() {
-        references.forEach((name, type) -> {
-            cg.addField(Encapsulation.PRIVATE, type, getFieldName(name)
-                    + getReferenceDefaultValue(type));
-        });
+    private String readCache(SourceFile source) {
+        source.cacheKey = cache.key(source.name, source.signature);
+        try {
+            String text = cache.get(source.cacheKey);
+            source.cached = text != null;
+            return text;
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.WARNING,
+                    "Cannot read cached builder " + source.name + ": " + e.getMessage());
+            return null;
+        }
     }
 
-    private void setCollectionAdders() {
-        collections.forEach((name, type) -> {
-            Method method = new Method("add" + validator.getSubstring(name))
-                    .setEncapsulation(Encapsulation.PUBLIC)
-                    .setReturnType(fullName)
-                    .addParameter(extractGenericType(type), "item")
-                    .addBodyLine("this." + getFieldName(name) + ".add(item);")
-                    .addBodyLine("return this;");
-            cg.addMethod(method);
-        });
+    private void writeCache(SourceFile source, String text) {
+        try {
+            cache.put(source.cacheKey, text);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.WARNING,
+                    "Cannot cache builder " + source.name + ": " + e.getMessage());
+        }
     }
 
-    private String extractGenericType(String type) {
-        int from = type.indexOf('<');
-        int to = type.indexOf('>');
-        if (from == -1 || to == -1) return null;
-        return type.substring(from + 1, to);
+    private void writeFile(SourceFile source, String text) {
+        statistics.startPhase();
+        generateFile(source, writer -> writer.write(text));
+        statistics.endPhase(Phase.WRITING, source.metrics);
+        if (source.metrics != null) {
+            source.metrics.addSource(text.length());
+        }
     }
 
-    private void setSetters(HashMap<String, String> methods) {
-        methods.forEach((name, type) -> {
-            Method method = new Method("set" + validator.getSubstring(name))
-                    .setEncapsulation(Encapsulation.PUBLIC)
-                    .setReturnType(fullName)
-                    .addParameter(type, "obj")
-                    .addBodyLine("this." + getFieldName(name) + " = obj;")
-                    .addBodyLine("return this;");
-            cg.addMethod(method);
-        });
-
+    private interface SourceWriter {
+        void write(Writer writer) throws IOException;
     }
 
-
-    // Predicates
-
-    private boolean getterPredicate(Element element) {
-        return  element.getKind() == ElementKind.METHOD
-                && (validator.getterOrSetterTypePredicate(element.getSimpleName().toString(), "get")
-                    || validator.getterOrSetterTypePredicate(element.getSimpleName().toString(), "has")
-                    || validator.getterOrSetterTypePredicate(element.getSimpleName().toString(), "is"))
-                && !element.getSimpleName().toString().startsWith("getClass")
-                && (element.getAnnotation(BuilderPatternIgnore.class) == null);
+    private void generateFile(SourceFile source, SourceWriter sourceWriter) {
+        try {
+            JavaFileObject sourceFile = processingEnv.getFiler()
+                    .createSourceFile(source.name, source.originatingElement);
+            try (Writer writer = sourceFile.openWriter()) {
+                sourceWriter.write(writer);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR,
+                    "Cannot create source class.");
+        }
     }
 
-    private boolean collectionPredicate(ExecutableElement element) {
-        return element.getReturnType().toString().startsWith(listType)
-                || element.getReturnType().toString().startsWith(setType);
-    }
+    // Source file of the round: name, originating element and renderer
+    private static class SourceFile {
+        private final String name;
+        private final TypeElement originatingElement;
+        private final String signature;
+        private final TypeMetrics metrics;
+        private final Consumer<CodeGenerator> renderer;
+        private String cacheKey;
+        private boolean cached;
+        private String text;
+        private long renderNanos;
+
+        SourceFile(String name, TypeElement originatingElement, String signature, TypeMetrics metrics,
+                   Consumer<CodeGenerator> renderer) {
+            this.name = name;
+            this.originatingElement = originatingElement;
+            this.signature = signature;
+            this.metrics = metrics;
+            this.renderer = renderer;
+        }
 
-    private boolean primitivePredicate(ExecutableElement element) {
-        return element.getReturnType().getKind().isPrimitive();
+        String render() {
+            long start = System.nanoTime();
+            CodeGenerator cg = new CodeGenerator();
+            renderer.accept(cg);
+            text = cg.build();
+            renderNanos = System.nanoTime() - start;
+            return text;
+        }
     }
 
+    // Counts characters of the streamed source
+    private static class CountingWriter extends FilterWriter {
+        private long count;
 
-    // Generators
-
-    private void generateBuildMethod(HashMap<String, String> methods) {
-        Method build = new Method("build")
-                .setEncapsulation(Encapsulation.PUBLIC)
-                .setReturnType(initialClassFullName)
-                .addBodyLine(initialClassFullName + " obj = new " + initialClassFullName + "();");
-
-        methods.forEach((name, type) -> {
-            build.addBodyLine("obj.set" + validator.getSubstring(name) + "(" + getFieldName(name) + ");");
-        });
+        CountingWriter(Writer writer) {
+            super(writer);
+        }
 
-        build.addBodyLine("return obj;");
-        cg.addMethod(build);
-    }
+        @Override
+        public void write(int c) throws IOException {
+            super.write(c);
+            count++;
+        }
 
-    private void generateCreateMethod() {
-        Method builder = new Method("create")
-                .setEncapsulation(Encapsulation.PUBLIC)
-                .setStatic()
-                .setReturnType(fullName)
-                .addBodyLine("return new " + fullName + "();");
-        cg.addMethod(builder);
-    }
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            super.write(chars, offset, length);
+            count += length;
+        }
 
-    private void generateFile() {
-        try {
-            JavaFileObject sourceFile = processingEnv.getFiler()
-                    .createSourceFile(fullName);
-            Writer writer = sourceFile.openWriter();
-            writer.write(cg.build());
-            writer.close();
-        } catch (IOException e) {
-            processingEnv.getMessager().printMessage(
-                    Diagnostic.Kind.ERROR,
-                    "Cannot create source class.");
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            super.write(string, offset, length);
+            count += length;
         }
     }
 }
@@ -0,0 +1,509 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * <p>BuilderRenderer class renders builder class: fields, setters, collection and primitive array adders,
+ * build, create and from methods, writeTo (@FlyweightPattern), buildAll and buildInto (batch)
+ * and reset and reusable methods (reusable builder).</p>
+ */
+final class BuilderRenderer extends SourceRenderer {
+    static final String SUFFIX = "Builder";
+
+    private static final Map<String, String> defaultValues = new HashMap<String, String>() {{
+            put(listType, " = null");
+            put(setType, " = null");
+            put(stringType, " = \"\"");
+    }};
+
+    // Collections are created by the first add call only
+    private static final Map<String, String> collectionImplementations = new HashMap<String, String>() {{
+            put(listType, "new java.util.ArrayList<>()");
+            put(setType, "new java.util.HashSet<>()");
+    }};
+
+    // Set while the thread's reusable builder is between reusable() and build()
+    private static final String REUSABLE_IN_USE_FIELD = "reusableInUse";
+
+    BuilderRenderer(SourceModel model) {
+        super(model, SUFFIX);
+    }
+
+    @Override
+    public void render(CodeGenerator cg) {
+        cg.definePackage(model.getPackageName());
+        cg.defineClass(Encapsulation.PUBLIC, className);
+        createFields(cg);
+        if (model.isReusable()) {
+            setReusableField(cg);
+        }
+        setCollectionAdders(cg);
+        setPrimitiveArrayAdders(cg);
+        setSetters(cg);
+        generateBuildMethod(cg);
+        generateCreateMethod(cg);
+        if (model.isReadable()) {
+            generateFromMethod(cg);
+        }
+        if (model.isFlyweight()) {
+            generateWriteToMethod(cg);
+        }
+        if (model.isBatch()) {
+            generateBatchMethods(cg);
+        }
+        if (model.isReusable()) {
+            generateResetMethod(cg);
+            generateReusableMethod(cg);
+        }
+        cg.build();
+    }
+
+
+    // Helpers
+
+    private void createFields(CodeGenerator cg) {
+        setCollectionsFields(cg);
+        setPrimitivesFields(cg);
+        setReferenceFields(cg);
+        setPrimitiveArrayFields(cg);
+    }
+
+    // Getters
+
+    private String getCollectionDefaultValue(String collectionType) {
+        if (collectionType.startsWith(listType)) {
+            return defaultValues.get(listType);
+        } else if (collectionType.startsWith(setType)) {
+            return defaultValues.get(setType);
+        }
+        return null;
+    }
+
+    private String getCollectionImplementation(String collectionType) {
+        if (collectionType.startsWith(listType)) {
+            return collectionImplementations.get(listType);
+        } else if (collectionType.startsWith(setType)) {
+            return collectionImplementations.get(setType);
+        }
+        return null;
+    }
+
+    private String getReferenceDefaultValue(String  referenceType) {
+        if(referenceType.equals(stringType)) {
+            return defaultValues.get(stringType);
+        }
+        return " = null";
+    }
+
+    private String getPrimitiveDefaultValue(String primitiveType) {
+        return "boolean".equals(primitiveType) ? " = false" : " = 0";
+    }
+
+    // True while collection is shared with the source object of from()
+    private String getSharedFieldName(String accessorName) {
+        return model.getFieldName(accessorName) + "Shared";
+    }
+
+    // True if the collection was passed to the setter or copied by from(), even if it is null
+    private String getAssignedFieldName(String accessorName) {
+        return model.getFieldName(accessorName) + "Assigned";
+    }
+
+    private String getCopyIfSharedMethodName(String accessorName) {
+        return "copy" + model.getSubstring(accessorName) + "IfShared";
+    }
+
+    // Number of used elements of the primitive array buffer
+    private String getArraySizeFieldName(String accessorName) {
+        return model.getFieldName(accessorName) + "Size";
+    }
+
+
+    // Setters
+
+    private void setCollectionsFields(CodeGenerator cg) {
+        model.getCollections().forEach((name, type) -> {
+            cg.addField(Encapsulation.PRIVATE, type, model.getFieldName(name)
+                    + getCollectionDefaultValue(type));
+            cg.addField(Encapsulation.PRIVATE, "boolean", getSharedFieldName(name));
+            cg.addField(Encapsulation.PRIVATE, "boolean", getAssignedFieldName(name));
+        });
+    }
+
+    private void setPrimitivesFields(CodeGenerator cg) {
+        model.getPrimitives().forEach((name, type) -> {
+            cg.addField(Encapsulation.PRIVATE, type, model.getFieldName(name));
+        });
+    }
+
+    private void setReferenceFields(CodeGenerator cg) {
+        model.getReferences().forEach((name, type) -> {
+            cg.addField(Encapsulation.PRIVATE, type, model.getFieldName(name)
+                    + getReferenceDefaultValue(type));
+        });
+    }
+
+    private void setPrimitiveArrayFields(CodeGenerator cg) {
+        model.getPrimitiveArrays().forEach((name, type) -> {
+            cg.addField(Encapsulation.PRIVATE, type, model.getFieldName(name) + " = null");
+            cg.addField(Encapsulation.PRIVATE, "int", getArraySizeFieldName(name));
+        });
+    }
+
+    private void setReusableField(CodeGenerator cg) {
+        cg.addConstant(Encapsulation.PRIVATE, "java.lang.ThreadLocal<" + classFullName + ">", "REUSABLE",
+                "java.lang.ThreadLocal.withInitial(" + classFullName + "::new)");
+        cg.addField(Encapsulation.PRIVATE, "boolean", REUSABLE_IN_USE_FIELD);
+    }
+
+    private void setCollectionAdders(CodeGenerator cg) {
+        model.getCollections().forEach((name, type) -> {
+            String field = "this." + model.getFieldName(name);
+            String itemType = extractGenericType(type);
+            Method method = new Method("add" + model.getSubstring(name))
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(classFullName)
+                    .addParameter(itemType, "item")
+                    .addBodyLine(getCopyIfSharedMethodName(name) + "();")
+                    .addBodyLineAndOpenBlock("if (" + field + " == null)")
+                    .addBodyLine(field + " = " + getCollectionImplementation(type) + ";")
+                    .closeBlock()
+                    .addBodyLine(field + ".add(item);")
+                    .addBodyLine("return this;");
+            cg.addMethod(method);
+
+            Method addItems = new Method("add" + model.getSubstring(name))
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(classFullName)
+                    .addParameter(itemType + "...", "items")
+                    .addBodyLine("expected" + model.getSubstring(name) + "Size(" +
+                            "(" + field + " == null ? 0 : " + field + ".size()) + items.length);")
+                    .addBodyLine("java.util.Collections.addAll(" + field + ", items);")
+                    .addBodyLine("return this;");
+            if (itemType.contains("<")) {
+                addItems.addAnnotation("java.lang.SuppressWarnings(\"unchecked\")");
+            }
+            cg.addMethod(addItems);
+
+            Method addAll = new Method("addAll" + model.getSubstring(name))
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(classFullName)
+                    .addParameter("java.util.Collection<? extends " + itemType + ">", "items")
+                    .addBodyLine(getCopyIfSharedMethodName(name) + "();")
+                    .addBodyLineAndOpenBlock("if (" + field + " == null)")
+                    .addBodyLine(field + " = " + getCollectionImplementation(type)
+                            .replace("<>()", "<>(items)") + ";")
+                    .addBodyLine("return this;")
+                    .closeBlock()
+                    .addBodyLine(field + ".addAll(items);")
+                    .addBodyLine("return this;");
+            cg.addMethod(addAll);
+
+            cg.addMethod(generateExpectedSizeMethod(name, type));
+
+            cg.addMethod(new Method(getCopyIfSharedMethodName(name))
+                    .setEncapsulation(Encapsulation.PRIVATE)
+                    .addBodyLineAndOpenBlock("if (this." + getSharedFieldName(name) + ")")
+                    .addBodyLine(field + " = " + getCollectionImplementation(type)
+                            .replace("<>()", "<>(" + field + ")") + ";")
+                    .addBodyLine("this." + getSharedFieldName(name) + " = false;")
+                    .closeBlock());
+        });
+    }
+
+    // Pre-sizes the collection: ArrayList gets the capacity, HashSet is created
+    // with enough buckets to hold expected number of items without rehashing.
+    private Method generateExpectedSizeMethod(String name, String type) {
+        String field = "this." + model.getFieldName(name);
+        Method method = new Method("expected" + model.getSubstring(name) + "Size")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType(classFullName)
+                .addParameter("int", "size")
+                .addBodyLine(getCopyIfSharedMethodName(name) + "();")
+                .addBodyLineAndOpenBlock("if (" + field + " == null)");
+        if (type.startsWith(listType)) {
+            method.addBodyLine(field + " = new java.util.ArrayList<>(size);")
+                    .addBodyLine("return this;")
+                    .closeBlock()
+                    .addBodyLineAndOpenBlock("if (" + field + " instanceof java.util.ArrayList)")
+                    .addBodyLine("((java.util.ArrayList<?>) " + field + ").ensureCapacity(size);")
+                    .closeBlock();
+        } else {
+            method.addBodyLine(field + " = new java.util.HashSet<>(java.lang.Math.max((int) (size / .75f) + 1, 16));")
+                    .closeBlock();
+        }
+        return method.addBodyLine("return this;");
+    }
+
+    // Primitive arrays are built in a growable buffer: items are stored without boxing
+    // and the buffer is trimmed to size by build(). An array passed to the setter is
+    // never written to: the buffer is full (size == length), so the next add copies it.
+    private void setPrimitiveArrayAdders(CodeGenerator cg) {
+        model.getPrimitiveArrays().forEach((name, type) -> {
+            String field = "this." + model.getFieldName(name);
+            String size = "this." + getArraySizeFieldName(name);
+            String itemType = getComponentType(type);
+            String expected = "expected" + model.getSubstring(name) + "Size";
+            Method method = new Method("add" + model.getSubstring(name))
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(classFullName)
+                    .addParameter(itemType, "item")
+                    .addBodyLineAndOpenBlock("if (" + field + " == null || " + size + " == " + field + ".length)")
+                    .addBodyLine(expected + "(java.lang.Math.max(16, " + size + " + (" + size + " >> 1)));")
+                    .closeBlock()
+                    .addBodyLine(field + "[" + size + "++] = item;")
+                    .addBodyLine("return this;");
+            cg.addMethod(method);
+
+            Method addItems = new Method("add" + model.getSubstring(name))
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(classFullName)
+                    .addParameter(itemType + "...", "items")
+                    .addBodyLine(expected + "(" + size + " + items.length);")
+                    .addBodyLine("java.lang.System.arraycopy(items, 0, " + field + ", " + size + ", items.length);")
+                    .addBodyLine(size + " += items.length;")
+                    .addBodyLine("return this;");
+            cg.addMethod(addItems);
+
+            Method expectedSize = new Method(expected)
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(classFullName)
+                    .addParameter("int", "size")
+                    .addBodyLineAndOpenBlock("if (" + field + " == null)")
+                    .addBodyLine(field + " = new " + itemType + "[size];")
+                    .addBodyLine("return this;")
+                    .closeBlock()
+                    .addBodyLineAndOpenBlock("if (" + field + ".length < size)")
+                    .addBodyLine(field + " = java.util.Arrays.copyOf(" + field + ", size);")
+                    .closeBlock()
+                    .addBodyLine("return this;");
+            cg.addMethod(expectedSize);
+        });
+    }
+
+    private void setSetters(CodeGenerator cg) {
+        model.getProperties().forEach((name, type) -> {
+            Method method = new Method("set" + model.getSubstring(name))
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(classFullName)
+                    .addParameter(type, "obj")
+                    .addBodyLine("this." + model.getFieldName(name) + " = obj;");
+            if (model.isPrimitiveArray(name)) {
+                method.addBodyLine("this." + getArraySizeFieldName(name) + " = obj == null ? 0 : obj.length;");
+            }
+            if (model.isCollection(name)) {
+                method.addBodyLine("this." + getSharedFieldName(name) + " = false;");
+                method.addBodyLine("this." + getAssignedFieldName(name) + " = true;");
+            }
+            method.addBodyLine("return this;");
+            cg.addMethod(method);
+        });
+
+    }
+
+
+    // Generators
+
+    private void generateBuildMethod(CodeGenerator cg) {
+        Map<String, String> methods = model.getProperties();
+        Method build = new Method("build")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType(typeFullName);
+        if (model.isReusable()) {
+            build.addBodyLineAndOpenBlock("try");
+        }
+        model.getPrimitiveArrays().forEach((name, type) -> {
+            String field = "this." + model.getFieldName(name);
+            String size = "this." + getArraySizeFieldName(name);
+            build.addBodyLineAndOpenBlock("if (" + field + " != null && " + size + " != " + field + ".length)")
+                    .addBodyLine(field + " = java.util.Arrays.copyOf(" + field + ", " + size + ");")
+                    .closeBlock();
+        });
+
+        if (model.isValue()) {
+            build.addBodyLine("return new " + model.getFullName(ValueRenderer.SUFFIX) + "(" +
+                    methods.keySet().stream()
+                            .map(model::getFieldName)
+                            .collect(Collectors.joining(", ")) + ");");
+            cg.addMethod(releaseReusable(build));
+            return;
+        }
+
+        switch (model.getStrategy()) {
+            case CONSTRUCTOR:
+                build.addBodyLine("return new " + typeFullName + "(" +
+                        model.getConstructorProperties().stream()
+                                .map(model::getFieldName)
+                                .collect(Collectors.joining(", ")) + ");");
+                break;
+            case FIELDS:
+                build.addBodyLine(typeFullName + " obj = new " + typeFullName + "();");
+                methods.forEach((name, type) -> {
+                    addBuildAssignment(build, name,
+                            "obj." + model.getFieldName(name) + " = " + model.getFieldName(name) + ";");
+                });
+                build.addBodyLine("return obj;");
+                break;
+            default:
+                build.addBodyLine(typeFullName + " obj = new " + typeFullName + "();");
+                methods.forEach((name, type) -> {
+                    addBuildAssignment(build, name,
+                            "obj.set" + model.getSubstring(name) + "(" + model.getFieldName(name) + ");");
+                });
+                build.addBodyLine("return obj;");
+        }
+        cg.addMethod(releaseReusable(build));
+    }
+
+    // Reusable builder is released by build() even if the POJO throws
+    private Method releaseReusable(Method build) {
+        if (!model.isReusable()) {
+            return build;
+        }
+        return build.closeBlockAndOpen("finally")
+                .addBodyLine("this." + REUSABLE_IN_USE_FIELD + " = false;")
+                .closeBlock();
+    }
+
+    // Collections that were neither set nor added to are left to the POJO (set null is assigned)
+    private void addBuildAssignment(Method build, String name, String assignment) {
+        if (model.isCollection(name)) {
+            build.addBodyLineAndOpenBlock("if (" + model.getFieldName(name) + " != null || "
+                    + getAssignedFieldName(name) + ")")
+                    .addBodyLine(assignment)
+                    .closeBlock();
+        } else {
+            build.addBodyLine(assignment);
+        }
+    }
+
+    private void generateCreateMethod(CodeGenerator cg) {
+        Method builder = new Method("create")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType(classFullName)
+                .addBodyLine("return new " + classFullName + "();");
+        cg.addMethod(builder);
+    }
+
+    // Copies properties through getters. Collections are shared with the source
+    // and copied by the first modifying call, primitive array buffers are full,
+    // so the first add copies them as well.
+    private void generateFromMethod(CodeGenerator cg) {
+        Method from = new Method("from")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType(classFullName)
+                .addParameter(typeFullName, "source")
+                .addBodyLine(classFullName + " builder = new " + classFullName + "();");
+        model.getProperties().forEach((name, type) -> {
+            String field = "builder." + model.getFieldName(name);
+            from.addBodyLine(field + " = source." + name + "();");
+            if (model.isCollection(name)) {
+                from.addBodyLine("builder." + getSharedFieldName(name) + " = " + field + " != null;");
+                from.addBodyLine("builder." + getAssignedFieldName(name) + " = true;");
+            } else if (model.isPrimitiveArray(name)) {
+                from.addBodyLine("builder." + getArraySizeFieldName(name) + " = "
+                        + field + " == null ? 0 : " + field + ".length;");
+            }
+        });
+        from.addBodyLine("return builder;");
+        cg.addMethod(from);
+    }
+
+    // One column array per property (in declaration order), one builder for all objects:
+    // every non null column sets its property before each build() call.
+    private void generateBatchMethods(CodeGenerator cg) {
+        Method buildAll = new Method("buildAll")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType(typeFullName + "[]")
+                .addParameter("int", "n");
+        Method buildInto = new Method("buildInto")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .addParameter(typeFullName + "[]", "target")
+                .addParameter("int", "offset")
+                .addParameter("int", "n")
+                .addBodyLine(classFullName + " builder = new " + classFullName + "();")
+                .addBodyLineAndOpenBlock("for (int i = 0; i < n; i++)");
+        List<String> columns = new ArrayList<>();
+        model.getProperties().forEach((name, type) -> {
+            String column = model.getFieldName(name) + "Column";
+            columns.add(column);
+            buildAll.addParameter(type + "[]", column);
+            buildInto.addParameter(type + "[]", column)
+                    .addBodyLineAndOpenBlock("if (" + column + " != null)")
+                    .addBodyLine("builder.set" + model.getSubstring(name) + "(" + column + "[i]);")
+                    .closeBlock();
+        });
+        buildAll.addBodyLine(typeFullName + "[] target = new " + typeFullName + "[n];")
+                .addBodyLine("buildInto(target, 0, n" + (columns.isEmpty() ? "" : ", ")
+                        + String.join(", ", columns) + ");")
+                .addBodyLine("return target;");
+        buildInto.addBodyLine("target[offset + i] = builder.build();")
+                .closeBlock();
+        cg.addMethod(buildAll);
+        cg.addMethod(buildInto);
+    }
+
+    // Builder fields are written to the slot directly, no POJO or flyweight is created
+    private void generateWriteToMethod(CodeGenerator cg) {
+        String flyweightFullName = model.getFullName(FlyweightRenderer.SUFFIX);
+        Method writeTo = new Method("writeTo")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType(classFullName)
+                .addParameter("java.nio.ByteBuffer", "buffer")
+                .addParameter("int", "slot")
+                .addBodyLine("int offset = slot * " + flyweightFullName + ".SIZE;");
+        FlyweightRenderer.getLayout(model).forEach((name, offset) -> writeTo.addBodyLine(
+                FlyweightRenderer.getBufferWrite(model.getPrimitives().get(name), "buffer",
+                        "offset + " + flyweightFullName + "." + FlyweightRenderer.getOffsetConstantName(model, name),
+                        "this." + model.getFieldName(name)) + ";"));
+        cg.addMethod(writeTo.addBodyLine("return this;"));
+    }
+
+    // reset() releases the reusable builder as well, so a builder abandoned before build() can be reused
+    private void generateResetMethod(CodeGenerator cg) {
+        Method reset = new Method("reset")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType(classFullName)
+                .addBodyLine("this." + REUSABLE_IN_USE_FIELD + " = false;");
+        model.getCollections().forEach((name, type) -> {
+            reset.addBodyLine("this." + model.getFieldName(name) + getCollectionDefaultValue(type) + ";");
+            reset.addBodyLine("this." + getSharedFieldName(name) + " = false;");
+            reset.addBodyLine("this." + getAssignedFieldName(name) + " = false;");
+        });
+        model.getPrimitives().forEach((name, type) -> {
+            reset.addBodyLine("this." + model.getFieldName(name) + getPrimitiveDefaultValue(type) + ";");
+        });
+        model.getReferences().forEach((name, type) -> {
+            reset.addBodyLine("this." + model.getFieldName(name) + getReferenceDefaultValue(type) + ";");
+        });
+        model.getPrimitiveArrays().forEach((name, type) -> {
+            reset.addBodyLine("this." + model.getFieldName(name) + " = null;");
+            reset.addBodyLine("this." + getArraySizeFieldName(name) + " = 0;");
+        });
+        reset.addBodyLine("return this;");
+        cg.addMethod(reset);
+    }
+
+    private void generateReusableMethod(CodeGenerator cg) {
+        Method reusable = new Method("reusable")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType(classFullName)
+                .addBodyLine(classFullName + " builder = REUSABLE.get();")
+                .addBodyLineAndOpenBlock("if (builder." + REUSABLE_IN_USE_FIELD + ")")
+                .addBodyLine("return new " + classFullName + "();")
+                .closeBlock()
+                .addBodyLine("builder.reset();")
+                .addBodyLine("builder." + REUSABLE_IN_USE_FIELD + " = true;")
+                .addBodyLine("return builder;");
+        cg.addMethod(reusable);
+    }
+}
@@ -1,5 +1,7 @@
 package info.narmontas.jpatterns.processor.utils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 
@@ -14,6 +16,9 @@ import java.util.LinkedHashMap;
  *          .addField(Encapsulation.PRIVATE, "fieldName")<br>
  *          .build();</p>
  * <p>build() method returns String result with formatted class content.</p>
+ * <p>CodeGenerator created with Appendable sink (ex., Writer of the generated source file)
+ * streams the content to the sink instead of buffering it, build() closes open blocks
+ * and returns null. IOException of the sink is rethrown as UncheckedIOException.</p>
  */
 public class CodeGenerator {
     public static final String LINE_BREAK = System.getProperty("line.separator");
@@ -41,10 +46,48 @@ public class CodeGenerator {
         }
     }
 
+    // Indentation strings are shared by all generated lines
+    private static final String[] INDENTS = new String[16];
+    static {
+        INDENTS[0] = "";
+        for (int i = 1; i < INDENTS.length; i++) {
+            INDENTS[i] = INDENTS[i - 1] + TAB;
+        }
+    }
+
+    static String indent(int tabCount) {
+        if (tabCount < INDENTS.length) {
+            return INDENTS[tabCount];
+        }
+        StringBuilder tabs = new StringBuilder(INDENTS[INDENTS.length - 1]);
+        for (int i = INDENTS.length - 1; i < tabCount; i++) {
+            tabs.append(TAB);
+        }
+        return tabs.toString();
+    }
+
     private int closingsRequired = 0;
-    private final StringBuilder builder = new StringBuilder();
+    private final Appendable builder;
+    private final boolean buffered;
     private HashMap<String, String> fields = new LinkedHashMap<>();
 
+    /**
+     * Generator which buffers the content, build() returns it.
+     */
+    public CodeGenerator() {
+        this.builder = new StringBuilder();
+        this.buffered = true;
+    }
+
+    /**
+     * Generator which streams the content to provided sink.
+     * @param sink Appendable
+     */
+    public CodeGenerator(Appendable sink) {
+        this.builder = sink;
+        this.buffered = false;
+    }
+
     /**
      * Class package should be provided as String packageName parameter.
      * @param packageName String
@@ -106,6 +149,49 @@ public class CodeGenerator {
         return this;
     }
 
+    /**
+     * This method defines final class which extends parent class or implements interface.
+     * Ex., defineFinalClass(Encapsulation.PUBLIC, "PersonValue", "Person", true) defines
+     * "public final class PersonValue implements Person".
+     * @param encapsulation Encapsulation (PUBLIC/PRIVATE/PACKAGE/PROTECTED)
+     * @param name String (Class name)
+     * @param parent String (Parent class or interface name)
+     * @param isInterface boolean (true if parent is interface)
+     * @return CodeGenerator
+     */
+    public CodeGenerator defineFinalClass(Encapsulation encapsulation, String name,
+                                          String parent, boolean isInterface) {
+        append(LINE_BREAK);
+        append(getEncapsulation(encapsulation));
+        append("final class ");
+        append(name);
+        if (isValid(parent)) {
+            append(isInterface ? " implements " : " extends ");
+            append(parent);
+        }
+        openBlock();
+        return this;
+    }
+
+    /**
+     * Add final field with specified <i>encapsulation</i>, <i>type</i> and <i>name</i>.
+     * Field should be assigned by the constructor.
+     * @param encapsulation Encapsulation (PUBLIC/PRIVATE/PACKAGE/PROTECTED)
+     * @param type String
+     * @param name String
+     * @return CodeGenerator
+     */
+    public CodeGenerator addFinalField(Encapsulation encapsulation, String type, String name) {
+        fields.put(name, type);
+        appendNewLine(getEncapsulation(encapsulation));
+        append("final ");
+        append(type);
+        append(SPACE);
+        append(name);
+        endLine();
+        return this;
+    }
+
     /**
      * Add simple parameter with specified <i>encapsulation</i>, <i>type</i> and <i>name</i>
      * @param encapsulation Encapsulation (PUBLIC/PRIVATE/PACKAGE/PROTECTED)
@@ -144,13 +230,38 @@ public class CodeGenerator {
         return this;
     }
 
+    /**
+     * Add static final field with specified <i>encapsulation</i>, <i>type</i>, <i>name</i>
+     * and value
+     * @param encapsulation Encapsulation (PUBLIC/PRIVATE/PACKAGE/PROTECTED)
+     * @param type String
+     * @param name String
+     * @param value String
+     * @return CodeGenerator
+     */
+    public CodeGenerator addConstant(Encapsulation encapsulation, String type, String name, String value) {
+        appendNewLine(getEncapsulation(encapsulation));
+        append("static final ");
+        append(type);
+        append(SPACE);
+        append(name);
+        append(" = ");
+        append(value);
+        endLine();
+        return this;
+    }
+
     /**
      * Add method.
      * @param method Method
      * @return CodeGenerator
      */
     public CodeGenerator addMethod(Method method) {
-        method.build(closingsRequired, builder);
+        try {
+            method.build(closingsRequired, builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         return this;
     }
 
@@ -182,20 +293,26 @@ public class CodeGenerator {
     // Helpers
 
     private void endLine() {
-        builder.append(SEMI_COL).append(LINE_BREAK);
+        append(SEMI_COL);
+        append(LINE_BREAK);
     }
 
     private void appendNewLine(String element) {
-        builder.append(addTabsBefore(closingsRequired, element));
+        append(indent(closingsRequired));
+        append(element);
     }
 
     private void append(String element) {
-        builder.append(element);
+        try {
+            builder.append(element);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     private void openBlock() {
-        builder.append(BLOCK_OPEN)
-                .append(LINE_BREAK);
+        append(BLOCK_OPEN);
+        append(LINE_BREAK);
         closingsRequired++;
     }
 
@@ -203,9 +320,10 @@ public class CodeGenerator {
         if (closingsRequired == 0) {
             return this;
         }
-        builder.append(addTabsBefore(closingsRequired - 1, BLOCK_CLOSE));
+        append(indent(closingsRequired - 1));
+        append(BLOCK_CLOSE);
         closingsRequired--;
-        if (closingsRequired > 0) builder.append(LINE_BREAK);
+        if (closingsRequired > 0) append(LINE_BREAK);
         return this;
     }
 
@@ -216,18 +334,6 @@ public class CodeGenerator {
         }
     }
 
-    private String addTabBefore(String line) {
-        return TAB + line;
-    }
-
-    private String addTabsBefore(int tabCount, String line) {
-        StringBuilder tabs = new StringBuilder();
-        for (int i = 0; i < tabCount; i++) {
-            tabs.append(TAB);
-        }
-        return tabs.toString() + line;
-    }
-
     private String getSpaces(int spaceCount) {
         StringBuilder spaces = new StringBuilder();
         for (int i = 0; i < spaceCount; i++) {
@@ -236,16 +342,36 @@ public class CodeGenerator {
         return spaces.toString();
     }
 
+    // Whitespace is allowed inside type arguments only: java.util.List<? extends java.lang.Number>
     static boolean isValid(String pieceOfCode) throws IllegalArgumentException {
         if (pieceOfCode == null) return false;
-        if (pieceOfCode.isEmpty() || pieceOfCode.trim().contains(" ")) {
+        if (pieceOfCode.isEmpty() || containsWhitespace(pieceOfCode.trim())) {
             throw new IllegalArgumentException("Literals cannot be empty or contain whitespace.");
         }
         return true;
     }
 
+    private static boolean containsWhitespace(String pieceOfCode) {
+        int depth = 0;
+        for (int i = 0; i < pieceOfCode.length(); i++) {
+            char c = pieceOfCode.charAt(i);
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (depth == 0 && Character.isWhitespace(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Closes all open blocks.
+     * @return String generated content or null if content was streamed to the sink
+     */
     public String build() {
         closeAllBlocks();
-        return builder.toString();
+        return buffered ? builder.toString() : null;
     }
 }
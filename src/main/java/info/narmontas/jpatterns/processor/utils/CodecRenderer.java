@@ -0,0 +1,231 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import java.util.Map;
+
+/**
+ * <p>CodecRenderer class renders Codec class: static write and read methods for java.io.DataOutput/DataInput
+ * and java.nio.ByteBuffer. Properties are written in declaration order,
+ * objects are read back through the builder.</p>
+ * <ul>
+ *     <li>primitives - as they are (boolean as one byte)</li>
+ *     <li>boxed primitives - boolean presence flag and the value</li>
+ *     <li>Strings - int length of UTF-8 bytes (-1 for null) and the bytes</li>
+ *     <li>enums - int ordinal (-1 for null)</li>
+ *     <li>primitive arrays, Lists and Sets - int size (-1 for null) and the items</li>
+ * </ul>
+ */
+final class CodecRenderer extends SourceRenderer {
+    static final String SUFFIX = "Codec";
+
+    CodecRenderer(SourceModel model) {
+        super(model, SUFFIX);
+    }
+
+    @Override
+    public void render(CodeGenerator codec) {
+        Map<String, String> properties = model.getProperties();
+        codec.definePackage(model.getPackageName());
+        codec.defineFinalClass(Encapsulation.PUBLIC, className, null, false);
+        properties.forEach((name, type) -> {
+            String enumType = model.isCollection(name) ? extractGenericType(type) : type;
+            if (model.isEnum(enumType)) {
+                codec.addConstant(Encapsulation.PRIVATE, enumType + "[]", model.getConstantName(name, "_VALUES"),
+                        enumType + ".values()");
+            }
+        });
+        codec.addMethod(new Method(className)
+                .setConstructor()
+                .setEncapsulation(Encapsulation.PRIVATE));
+
+        for (boolean buffer: new boolean[]{false, true}) {
+            Method write = new Method("write")
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setStatic()
+                    .addParameter(typeFullName, "obj");
+            Method read = new Method("read")
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setStatic()
+                    .setReturnType(typeFullName);
+            if (buffer) {
+                write.addParameter("java.nio.ByteBuffer", "buffer");
+                read.addParameter("java.nio.ByteBuffer", "buffer");
+            } else {
+                write.addParameter("java.io.DataOutput", "out").addThrows("java.io.IOException");
+                read.addParameter("java.io.DataInput", "in").addThrows("java.io.IOException");
+            }
+            read.addBodyLine(builderFullName + " builder = " + builderFullName + ".create();");
+            properties.forEach((name, type) -> {
+                addWriteLines(write, name, type, buffer);
+                addReadLines(read, name, type, buffer);
+            });
+            codec.addMethod(write);
+            codec.addMethod(read.addBodyLine("return builder.build();"));
+        }
+
+        boolean strings = properties.values().stream()
+                .anyMatch(type -> type.equals(stringType) || stringType.equals(extractGenericType(type)));
+        if (strings) {
+            addStringMethods(codec);
+        }
+        codec.build();
+    }
+
+    private void addWriteLines(Method write, String name, String type, boolean buffer) {
+        String getter = "obj." + name + "()";
+        if (model.isPrimitive(name)) {
+            write.addBodyLine(getWrite(type, getter, buffer) + ";");
+            return;
+        }
+        String local = model.getFieldName(name) + "Value";
+        write.addBodyLine(type + " " + local + " = " + getter + ";");
+        if (model.isPrimitiveArray(name)) {
+            write.addBodyLine(getWrite("int", local + " == null ? -1 : " + local + ".length", buffer) + ";")
+                    .addBodyLineAndOpenBlock("if (" + local + " != null)")
+                    .addBodyLineAndOpenBlock("for (" + getComponentType(type) + " item: " + local + ")")
+                    .addBodyLine(getWrite(getComponentType(type), "item", buffer) + ";")
+                    .closeBlock()
+                    .closeBlock();
+        } else if (model.isCollection(name)) {
+            String element = extractGenericType(type);
+            write.addBodyLine(getWrite("int", local + " == null ? -1 : " + local + ".size()", buffer) + ";")
+                    .addBodyLineAndOpenBlock("if (" + local + " != null)")
+                    .addBodyLineAndOpenBlock("for (" + element + " item: " + local + ")");
+            addScalarWriteLines(write, element, "item", buffer);
+            write.closeBlock()
+                    .closeBlock();
+        } else {
+            addScalarWriteLines(write, type, local, buffer);
+        }
+    }
+
+    private void addScalarWriteLines(Method write, String type, String value, boolean buffer) {
+        String target = buffer ? "buffer" : "out";
+        if (stringType.equals(type)) {
+            write.addBodyLine("writeString(" + target + ", " + value + ");");
+        } else if (model.isEnum(type)) {
+            write.addBodyLine(getWrite("int", value + " == null ? -1 : " + value + ".ordinal()", buffer) + ";");
+        } else {
+            write.addBodyLine(getWrite("boolean", value + " != null", buffer) + ";")
+                    .addBodyLineAndOpenBlock("if (" + value + " != null)")
+                    .addBodyLine(getWrite(getUnboxedType(type), value, buffer) + ";")
+                    .closeBlock();
+        }
+    }
+
+    private void addReadLines(Method read, String name, String type, boolean buffer) {
+        String setter = "builder.set" + model.getSubstring(name);
+        if (model.isPrimitive(name)) {
+            read.addBodyLine(setter + "(" + getRead(type, buffer) + ");");
+            return;
+        }
+        String local = model.getFieldName(name) + "Value";
+        if (model.isPrimitiveArray(name) || model.isCollection(name)) {
+            String size = model.getFieldName(name) + "Size";
+            read.addBodyLine("int " + size + " = " + getRead("int", buffer) + ";")
+                    .addBodyLine(type + " " + local + " = null;")
+                    .addBodyLineAndOpenBlock("if (" + size + " >= 0)");
+            if (model.isPrimitiveArray(name)) {
+                String component = getComponentType(type);
+                read.addBodyLine(local + " = new " + component + "[" + size + "];")
+                        .addBodyLineAndOpenBlock("for (int i = 0; i < " + size + "; i++)")
+                        .addBodyLine(local + "[i] = " + getRead(component, buffer) + ";")
+                        .closeBlock();
+            } else {
+                String implementation = type.startsWith(listType)
+                        ? "new java.util.ArrayList<>(" + size + ")"
+                        : "new java.util.HashSet<>((int) (" + size + " / 0.75f) + 1)";
+                read.addBodyLine(local + " = " + implementation + ";")
+                        .addBodyLineAndOpenBlock("for (int i = 0; i < " + size + "; i++)");
+                addScalarReadLines(read, name, extractGenericType(type), "item", buffer);
+                read.addBodyLine(local + ".add(item);")
+                        .closeBlock();
+            }
+            read.closeBlock()
+                    .addBodyLine(setter + "(" + local + ");");
+            return;
+        }
+        addScalarReadLines(read, name, type, local, buffer);
+        read.addBodyLine(setter + "(" + local + ");");
+    }
+
+    private void addScalarReadLines(Method read, String name, String type, String local, boolean buffer) {
+        if (stringType.equals(type)) {
+            read.addBodyLine(type + " " + local + " = readString(" + (buffer ? "buffer" : "in") + ");");
+        } else if (model.isEnum(type)) {
+            String ordinal = local + "Ordinal";
+            read.addBodyLine("int " + ordinal + " = " + getRead("int", buffer) + ";")
+                    .addBodyLine(type + " " + local + " = " + ordinal + " < 0 ? null : "
+                            + model.getConstantName(name, "_VALUES") + "[" + ordinal + "];");
+        } else {
+            read.addBodyLine(type + " " + local + " = " + getRead("boolean", buffer) + " ? "
+                    + type + ".valueOf(" + getRead(getUnboxedType(type), buffer) + ") : null;");
+        }
+    }
+
+    // UTF-8 bytes with int length prefix (DataOutput.writeUTF is limited to 64 KB)
+    private void addStringMethods(CodeGenerator codec) {
+        String charset = "java.nio.charset.StandardCharsets.UTF_8";
+        for (boolean buffer: new boolean[]{false, true}) {
+            String target = buffer ? "buffer" : "out";
+            String source = buffer ? "buffer" : "in";
+            Method write = new Method("writeString")
+                    .setEncapsulation(Encapsulation.PRIVATE)
+                    .setStatic()
+                    .addParameter(buffer ? "java.nio.ByteBuffer" : "java.io.DataOutput", target)
+                    .addParameter(stringType, "value")
+                    .addBodyLineAndOpenBlock("if (value == null)")
+                    .addBodyLine(getWrite("int", "-1", buffer) + ";")
+                    .addBodyLine("return;")
+                    .closeBlock()
+                    .addBodyLine("byte[] bytes = value.getBytes(" + charset + ");")
+                    .addBodyLine(getWrite("int", "bytes.length", buffer) + ";")
+                    .addBodyLine(buffer ? "buffer.put(bytes);" : "out.write(bytes);");
+            Method read = new Method("readString")
+                    .setEncapsulation(Encapsulation.PRIVATE)
+                    .setStatic()
+                    .setReturnType(stringType)
+                    .addParameter(buffer ? "java.nio.ByteBuffer" : "java.io.DataInput", source)
+                    .addBodyLine("int length = " + getRead("int", buffer) + ";")
+                    .addBodyLineAndOpenBlock("if (length < 0)")
+                    .addBodyLine("return null;")
+                    .closeBlock()
+                    .addBodyLine("byte[] bytes = new byte[length];")
+                    .addBodyLine(buffer ? "buffer.get(bytes);" : "in.readFully(bytes);")
+                    .addBodyLine("return new " + stringType + "(bytes, " + charset + ");");
+            if (!buffer) {
+                write.addThrows("java.io.IOException");
+                read.addThrows("java.io.IOException");
+            }
+            codec.addMethod(write);
+            codec.addMethod(read);
+        }
+    }
+
+    private String getWrite(String primitiveType, String value, boolean buffer) {
+        if (!buffer) {
+            return "out.write" + getTypeSuffix(primitiveType) + "(" + value + ")";
+        }
+        switch (primitiveType) {
+            case "boolean":
+                return "buffer.put((byte) (" + value + " ? 1 : 0))";
+            case "byte":
+                return "buffer.put(" + value + ")";
+            default:
+                return "buffer.put" + getTypeSuffix(primitiveType) + "(" + value + ")";
+        }
+    }
+
+    private String getRead(String primitiveType, boolean buffer) {
+        if (!buffer) {
+            return "in.read" + getTypeSuffix(primitiveType) + "()";
+        }
+        switch (primitiveType) {
+            case "boolean":
+                return "buffer.get() != 0";
+            case "byte":
+                return "buffer.get()";
+            default:
+                return "buffer.get" + getTypeSuffix(primitiveType) + "()";
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>ColumnsRenderer class renders Columns class (structure of arrays): one array per property, size,
+ * add(POJO) copying properties through getters, indexed getters and setters, backing array accessors,
+ * get(index) creating an object through the builder and forEach over indexes.
+ * Arrays grow by half of their length.</p>
+ */
+final class ColumnsRenderer extends SourceRenderer {
+    static final String SUFFIX = "Columns";
+
+    ColumnsRenderer(SourceModel model) {
+        super(model, SUFFIX);
+    }
+
+    @Override
+    public void render(CodeGenerator columns) {
+        Map<String, String> properties = model.getProperties();
+        columns.definePackage(model.getPackageName());
+        columns.defineFinalClass(Encapsulation.PUBLIC, className, null, false);
+        columns.addConstant(Encapsulation.PRIVATE, "int", "DEFAULT_CAPACITY", "16");
+        properties.forEach((name, type) -> columns.addField(Encapsulation.PRIVATE, type + "[]", getColumnName(name)));
+        columns.addField(Encapsulation.PRIVATE, "int", "size");
+
+        String first = getColumnName(properties.keySet().iterator().next());
+        columns.addMethod(new Method(className)
+                .setConstructor()
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .addBodyLine("this(DEFAULT_CAPACITY);"));
+        Method constructor = new Method(className)
+                .setConstructor()
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .addParameter("int", "capacity");
+        if (properties.values().stream().anyMatch(type -> type.indexOf('<') >= 0)) {
+            constructor.addAnnotation("java.lang.SuppressWarnings(\"unchecked\")");
+        }
+        Method add = new Method("add")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType("int")
+                .addParameter(typeFullName, "obj")
+                .addBodyLineAndOpenBlock("if (size == " + first + ".length)")
+                .addBodyLine("ensureCapacity(size + 1);")
+                .closeBlock();
+        Method ensureCapacity = new Method("ensureCapacity")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .addParameter("int", "capacity")
+                .addBodyLineAndOpenBlock("if (capacity <= " + first + ".length)")
+                .addBodyLine("return;")
+                .closeBlock()
+                .addBodyLine("int newCapacity = java.lang.Math.max(capacity, "
+                        + first + ".length + (" + first + ".length >> 1) + 1);");
+        Method clear = new Method("clear")
+                .setEncapsulation(Encapsulation.PUBLIC);
+        Method get = new Method("get")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType(typeFullName)
+                .addParameter("int", "index")
+                .addBodyLine(builderFullName + " builder = " + builderFullName + ".create();");
+        List<Method> accessors = new ArrayList<>();
+        properties.forEach((name, type) -> {
+            String column = getColumnName(name);
+            constructor.addBodyLine("this." + column + " = " + getNewArrayExpression(type, "capacity") + ";");
+            add.addBodyLine(column + "[size] = obj." + name + "();");
+            ensureCapacity.addBodyLine(column + " = java.util.Arrays.copyOf(" + column + ", newCapacity);");
+            if (!model.isPrimitive(name)) {
+                clear.addBodyLine("java.util.Arrays.fill(" + column + ", 0, size, null);");
+            }
+            get.addBodyLine("builder.set" + model.getSubstring(name) + "(" + column + "[index]);");
+            accessors.add(new Method(name)
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(type)
+                    .addParameter("int", "index")
+                    .addBodyLine("return " + column + "[index];"));
+            accessors.add(new Method("set" + model.getSubstring(name))
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .addParameter("int", "index")
+                    .addParameter(type, "value")
+                    .addBodyLine(column + "[index] = value;"));
+            accessors.add(new Method(column)
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(type + "[]")
+                    .addBodyLine("return " + column + ";"));
+        });
+        columns.addMethod(constructor);
+        columns.addMethod(new Method("size")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType("int")
+                .addBodyLine("return size;"));
+        columns.addMethod(add.addBodyLine("return size++;"));
+        columns.addMethod(get.addBodyLine("return builder.build();"));
+        accessors.forEach(columns::addMethod);
+        columns.addMethod(new Method("forEach")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .addParameter("java.util.function.IntConsumer", "action")
+                .addBodyLineAndOpenBlock("for (int i = 0; i < size; i++)")
+                .addBodyLine("action.accept(i);")
+                .closeBlock());
+        columns.addMethod(ensureCapacity);
+        columns.addMethod(clear.addBodyLine("size = 0;"));
+        columns.build();
+    }
+
+    // score - scoreColumn
+    private String getColumnName(String accessorName) {
+        return model.getFieldName(accessorName) + "Column";
+    }
+
+    // new long[length], new long[length][], (java.util.List<java.lang.String>[]) new java.util.List<?>[length]
+    private String getNewArrayExpression(String type, String length) {
+        int generic = type.indexOf('<');
+        String erased = generic < 0
+                ? type
+                : type.substring(0, generic) + "<?>" + type.substring(type.lastIndexOf('>') + 1);
+        int dimensions = erased.indexOf('[');
+        String creation = dimensions < 0
+                ? "new " + erased + "[" + length + "]"
+                : "new " + erased.substring(0, dimensions) + "[" + length + "]" + erased.substring(dimensions);
+        return generic < 0 ? creation : "(" + type + "[]) " + creation;
+    }
+}
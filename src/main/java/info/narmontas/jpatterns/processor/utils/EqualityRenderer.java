@@ -0,0 +1,64 @@
+package info.narmontas.jpatterns.processor.utils;
+
+/**
+ * <p>EqualityRenderer class renders Equality class: static equals, hashCode and toString
+ * of the POJO working through getters.</p>
+ */
+final class EqualityRenderer extends SourceRenderer {
+    static final String SUFFIX = "Equality";
+
+    private final ObjectMethods objectMethods;
+
+    EqualityRenderer(SourceModel model) {
+        super(model, SUFFIX);
+        this.objectMethods = new ObjectMethods(model);
+    }
+
+    @Override
+    public void render(CodeGenerator equality) {
+        equality.definePackage(model.getPackageName());
+        equality.defineFinalClass(Encapsulation.PUBLIC, className, null, false);
+        equality.addMethod(new Method(className)
+                .setConstructor()
+                .setEncapsulation(Encapsulation.PRIVATE));
+
+        equality.addMethod(new Method("equals")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType("boolean")
+                .addParameter(typeFullName, "obj")
+                .addParameter("java.lang.Object", "other")
+                .addBodyLineAndOpenBlock("if (obj == other)")
+                .addBodyLine("return true;")
+                .closeBlock()
+                .addBodyLineAndOpenBlock("if (obj == null || other == null || obj.getClass() != other.getClass())")
+                .addBodyLine("return false;")
+                .closeBlock()
+                .addBodyLine(typeFullName + " that = (" + typeFullName + ") other;")
+                .addBodyLine("return " + objectMethods.getEqualsExpression(
+                        name -> "obj." + name + "()", name -> "that." + name + "()") + ";"));
+
+        Method hashCode = new Method("hashCode")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType("int")
+                .addParameter(typeFullName, "obj")
+                .addBodyLineAndOpenBlock("if (obj == null)")
+                .addBodyLine("return 0;")
+                .closeBlock()
+                .addBodyLine("int result = 1;");
+        objectMethods.addHashCodeLines(hashCode, name -> "obj." + name + "()");
+        equality.addMethod(hashCode.addBodyLine("return result;"));
+
+        equality.addMethod(new Method("toString")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType(stringType)
+                .addParameter(typeFullName, "obj")
+                .addBodyLineAndOpenBlock("if (obj == null)")
+                .addBodyLine("return \"null\";")
+                .closeBlock()
+                .addBodyLine("return " + objectMethods.getToStringExpression(name -> "obj." + name + "()") + ";"));
+        equality.build();
+    }
+}
@@ -0,0 +1,155 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>FlyweightRenderer class renders flyweight class (type annotated with @FlyweightPattern):
+ * getters and setters reading and writing one slot of ByteBuffer at fixed offsets.
+ * Slot layout is shared with builder's writeTo method.</p>
+ */
+final class FlyweightRenderer extends SourceRenderer {
+    static final String SUFFIX = "Flyweight";
+
+    // Flyweight slot layout: size in bytes of primitive types
+    private static final Map<String, Integer> primitiveSizes = new HashMap<String, Integer>() {{
+            put("boolean", 1);
+            put("byte", 1);
+            put("short", 2);
+            put("char", 2);
+            put("int", 4);
+            put("float", 4);
+            put("long", 8);
+            put("double", 8);
+    }};
+
+    private final ObjectMethods objectMethods;
+
+    FlyweightRenderer(SourceModel model) {
+        super(model, SUFFIX);
+        this.objectMethods = new ObjectMethods(model);
+    }
+
+    @Override
+    public void render(CodeGenerator flyweight) {
+        Map<String, Integer> layout = getLayout(model);
+        String bufferType = "java.nio.ByteBuffer";
+        flyweight.definePackage(model.getPackageName());
+        flyweight.defineFinalClass(Encapsulation.PUBLIC, className, null, false);
+        flyweight.addConstant(Encapsulation.PUBLIC, "int", "SIZE", String.valueOf(getSize(layout)));
+        layout.forEach((name, offset) -> flyweight.addConstant(Encapsulation.PACKAGE, "int",
+                getOffsetConstantName(model, name), String.valueOf(offset)));
+        flyweight.addField(Encapsulation.PRIVATE, bufferType, "buffer");
+        flyweight.addField(Encapsulation.PRIVATE, "int", "offset");
+
+        flyweight.addMethod(new Method("allocateDirect")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType(bufferType)
+                .addParameter("int", "slots")
+                .addBodyLine("return " + bufferType + ".allocateDirect(slots * SIZE)"
+                        + ".order(java.nio.ByteOrder.nativeOrder());"));
+        flyweight.addMethod(new Method("slots")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType("int")
+                .addParameter(bufferType, "buffer")
+                .addBodyLine("return buffer.capacity() / SIZE;"));
+        flyweight.addMethod(new Method("wrap")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType(classFullName)
+                .addParameter(bufferType, "buffer")
+                .addParameter("int", "slot")
+                .addBodyLine("this.buffer = buffer;")
+                .addBodyLine("this.offset = slot * SIZE;")
+                .addBodyLine("return this;"));
+
+        layout.forEach((name, offset) -> {
+            String type = model.getPrimitives().get(name);
+            String position = "this.offset + " + getOffsetConstantName(model, name);
+            flyweight.addMethod(new Method(name)
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(type)
+                    .addBodyLine("return " + getBufferRead(type, "this.buffer", position) + ";"));
+            flyweight.addMethod(new Method("set" + model.getSubstring(name))
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(classFullName)
+                    .addParameter(type, "value")
+                    .addBodyLine(getBufferWrite(type, "this.buffer", position, "value") + ";")
+                    .addBodyLine("return this;"));
+        });
+
+        Method toBuilder = new Method("toBuilder")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType(builderFullName)
+                .addBodyLine(builderFullName + " builder = " + builderFullName + ".create();");
+        model.getProperties().forEach((name, type) ->
+                toBuilder.addBodyLine("builder.set" + model.getSubstring(name) + "(" + name + "());"));
+        flyweight.addMethod(toBuilder.addBodyLine("return builder;"));
+
+        flyweight.addMethod(new Method("toString")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .addAnnotation("java.lang.Override")
+                .setReturnType(stringType)
+                .addBodyLine("return " + objectMethods.getToStringExpression(name -> name + "()") + ";"));
+        flyweight.build();
+    }
+
+    // Offsets of the properties in the flyweight slot: larger types first (stable for equal sizes),
+    // so every property is aligned to its size
+    static Map<String, Integer> getLayout(SourceModel model) {
+        Map<String, String> primitives = model.getPrimitives();
+        List<String> names = new ArrayList<>(primitives.keySet());
+        names.sort(Comparator.comparing((String name) -> primitiveSizes.get(primitives.get(name))).reversed());
+        Map<String, Integer> layout = new LinkedHashMap<>();
+        int offset = 0;
+        for (String name: names) {
+            layout.put(name, offset);
+            offset += primitiveSizes.get(primitives.get(name));
+        }
+        return layout;
+    }
+
+    // lastPrice - LAST_PRICE_OFFSET
+    static String getOffsetConstantName(SourceModel model, String accessorName) {
+        return model.getConstantName(accessorName, "_OFFSET");
+    }
+
+    static String getBufferWrite(String type, String buffer, String position, String value) {
+        switch (type) {
+            case "boolean":
+                return buffer + ".put(" + position + ", (byte) (" + value + " ? 1 : 0))";
+            case "byte":
+                return buffer + ".put(" + position + ", " + value + ")";
+            default:
+                return buffer + ".put" + getTypeSuffix(type) + "(" + position + ", " + value + ")";
+        }
+    }
+
+    // Slot size is padded to the largest property size, so all slots are aligned
+    private int getSize(Map<String, Integer> layout) {
+        int size = 0;
+        int alignment = 1;
+        for (String name: layout.keySet()) {
+            int propertySize = primitiveSizes.get(model.getPrimitives().get(name));
+            size += propertySize;
+            alignment = Math.max(alignment, propertySize);
+        }
+        return (size + alignment - 1) / alignment * alignment;
+    }
+
+    private String getBufferRead(String type, String buffer, String position) {
+        switch (type) {
+            case "boolean":
+                return buffer + ".get(" + position + ") != 0";
+            case "byte":
+                return buffer + ".get(" + position + ")";
+            default:
+                return buffer + ".get" + getTypeSuffix(type) + "(" + position + ")";
+        }
+    }
+}
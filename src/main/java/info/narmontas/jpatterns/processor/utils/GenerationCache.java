@@ -0,0 +1,123 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.stream.Stream;
+
+/**
+ * <p>GenerationCache class stores generated sources on disk.</p>
+ * <p>Every source is stored under the SHA-256 hash of its key (class name,
+ * property model signature and processor version), so a cached source is reused
+ * only when nothing the generation depends on has changed.</p>
+ */
+public class GenerationCache {
+    private static final String EXTENSION = ".java";
+
+    private final Path directory;
+    private final String processorVersion;
+    private int hits = 0;
+    private int misses = 0;
+
+    public GenerationCache(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.processorVersion = getProcessorVersion();
+    }
+
+    /**
+     * Creates cache key for the generated class.
+     * @param className String generated class full name
+     * @param signature String signature of the source model
+     * @return String hex encoded hash
+     */
+    public String key(String className, String signature) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(processorVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(className.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(signature.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b: digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Returns cached source or null if source with provided key is not cached.
+     * @param key String
+     * @return String source or null
+     * @throws IOException if cached source cannot be read
+     */
+    public String get(String key) throws IOException {
+        Path file = directory.resolve(key + EXTENSION);
+        if (!Files.isRegularFile(file)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stores source with provided key. Source is written to temporary file first
+     * and then moved, so concurrent builds never read partially written source.
+     * @param key String
+     * @param source String
+     * @throws IOException if source cannot be stored
+     */
+    public void put(String key, String source) throws IOException {
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.write(temp, source.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, directory.resolve(key + EXTENSION),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    // Processor jar (or newest class file while developing) size and modification time,
+    // so sources generated by another processor build are not reused.
+    private static String getProcessorVersion() {
+        try {
+            CodeSource codeSource = GenerationCache.class.getProtectionDomain().getCodeSource();
+            if (codeSource == null || codeSource.getLocation() == null) {
+                return "unknown";
+            }
+            Path location = Paths.get(codeSource.getLocation().toURI());
+            if (Files.isDirectory(location)) {
+                try (Stream<Path> files = Files.walk(location)) {
+                    return "dir:" + files.filter(Files::isRegularFile)
+                            .mapToLong(file -> file.toFile().lastModified())
+                            .max()
+                            .orElse(0L);
+                }
+            }
+            return Files.size(location) + ":" + Files.getLastModifiedTime(location).toMillis();
+        } catch (URISyntaxException | IOException | SecurityException | IllegalArgumentException e) {
+            return "unknown";
+        }
+    }
+}
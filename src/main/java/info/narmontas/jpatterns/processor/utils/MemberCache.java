@@ -0,0 +1,241 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import info.narmontas.jpatterns.annotation.BuilderPatternIgnore;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>MemberCache class resolves and classifies methods of the type and of its supertypes.</p>
+ * <p>Resolved methods of every type are cached, so a parent class shared by many annotated
+ * types is walked and classified once: subclasses put their own methods on top of the
+ * cached methods of the parent class and interfaces.</p>
+ * <p>Methods are ordered deterministically: inherited methods first (in the order of the parent),
+ * then methods declared by the type. An overriding method takes the place of the overridden one.</p>
+ * <p>Cache should be used during one processing round only.</p>
+ */
+public class MemberCache {
+
+    /**
+     * Kind of the property getter return type.
+     */
+    public enum Category {
+        COLLECTION, PRIMITIVE, PRIMITIVE_ARRAY, REFERENCE
+    }
+
+    /**
+     * Classified method.
+     */
+    public static class Member {
+        private final ExecutableElement method;
+        private final String name;
+        private final boolean setter;
+        private final boolean getter;
+        private final boolean ignored;
+        private final boolean isAbstract;
+        private final Category category;
+        private final String returnType;
+
+        Member(ExecutableElement method) {
+            this.method = method;
+            this.name = method.getSimpleName().toString();
+            this.isAbstract = method.getModifiers().contains(Modifier.ABSTRACT);
+            Validator.AccessorKind kind = Validator.classifyAccessor(name);
+            this.setter = kind == Validator.AccessorKind.SETTER;
+            this.getter = kind == Validator.AccessorKind.GETTER && !name.startsWith("getClass");
+            this.ignored = getter && method.getAnnotation(BuilderPatternIgnore.class) != null;
+            if (getter && !ignored) {
+                TypeMirror returnTypeMirror = method.getReturnType();
+                this.returnType = returnTypeMirror.toString();
+                this.category = categoryOf(returnTypeMirror, returnType);
+            } else {
+                this.returnType = null;
+                this.category = null;
+            }
+        }
+
+        public ExecutableElement getMethod() {
+            return method;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isSetter() {
+            return setter;
+        }
+
+        /**
+         * True for getters (ignored getters included).
+         * @return boolean
+         */
+        public boolean isGetter() {
+            return getter;
+        }
+
+        /**
+         * True if getter is annotated with @BuilderPatternIgnore.
+         * @return boolean
+         */
+        public boolean isIgnored() {
+            return ignored;
+        }
+
+        public boolean isAbstract() {
+            return isAbstract;
+        }
+
+        /**
+         * Return type category of not ignored getter, null for other methods.
+         * @return Category
+         */
+        public Category getCategory() {
+            return category;
+        }
+
+        /**
+         * Return type of not ignored getter, null for other methods.
+         * @return String
+         */
+        public String getReturnType() {
+            return returnType;
+        }
+    }
+
+    /**
+     * Category of the property type.
+     * @param typeMirror TypeMirror property type
+     * @param type String property type name
+     * @return Category
+     */
+    public static Category categoryOf(TypeMirror typeMirror, String type) {
+        if (type.startsWith(PropertyModel.LIST_TYPE) || type.startsWith(PropertyModel.SET_TYPE)) {
+            return Category.COLLECTION;
+        } else if (typeMirror.getKind().isPrimitive()) {
+            return Category.PRIMITIVE;
+        } else if (typeMirror.getKind() == TypeKind.ARRAY
+                && ((ArrayType) typeMirror).getComponentType().getKind().isPrimitive()) {
+            return Category.PRIMITIVE_ARRAY;
+        }
+        return Category.REFERENCE;
+    }
+
+    private final Elements elementUtils;
+    private final Map<TypeElement, Map<String, Member>> resolved = new HashMap<>();
+    private int hits = 0;
+    private int misses = 0;
+
+    public MemberCache(Elements elementUtils) {
+        this.elementUtils = elementUtils;
+    }
+
+    /**
+     * Methods of the type and the methods it inherits, overridden methods excluded.
+     * @param type TypeElement
+     * @return Collection of classified methods
+     */
+    public Collection<Member> getMembers(TypeElement type) {
+        return Collections.unmodifiableCollection(resolve(type).values());
+    }
+
+    /**
+     * Number of types which resolved methods were reused.
+     * @return int
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Number of resolved types.
+     * @return int
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    private Map<String, Member> resolve(TypeElement type) {
+        Map<String, Member> members = resolved.get(type);
+        if (members != null) {
+            hits++;
+            return members;
+        }
+        misses++;
+        members = new LinkedHashMap<>();
+        TypeElement parent = asTypeElement(type.getSuperclass());
+        if (parent != null) {
+            inherit(members, resolve(parent), false);
+        }
+        for (TypeMirror parentInterface: type.getInterfaces()) {
+            TypeElement element = asTypeElement(parentInterface);
+            if (element != null) {
+                inherit(members, resolve(element), true);
+            }
+        }
+        for (ExecutableElement method: ElementFilter.methodsIn(type.getEnclosedElements())) {
+            String key = key(method);
+            if (!members.containsKey(key) && !method.getParameters().isEmpty()) {
+                key = overriddenKey(members, method, type, key);
+            }
+            members.put(key, new Member(method));
+        }
+        resolved.put(type, members);
+        return members;
+    }
+
+    // Private methods are not inherited, static methods of interfaces are not inherited too.
+    // Methods of the parent class are put first, so they win over interface methods.
+    private static void inherit(Map<String, Member> members, Map<String, Member> inherited, boolean fromInterface) {
+        for (Map.Entry<String, Member> entry: inherited.entrySet()) {
+            Set<Modifier> modifiers = entry.getValue().getMethod().getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || (fromInterface && modifiers.contains(Modifier.STATIC))) {
+                continue;
+            }
+            members.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Parameter types of generic parent methods differ from the ones of the overriding method
+    private String overriddenKey(Map<String, Member> members, ExecutableElement method, TypeElement type,
+                                 String key) {
+        for (Map.Entry<String, Member> entry: members.entrySet()) {
+            ExecutableElement inherited = entry.getValue().getMethod();
+            if (inherited.getSimpleName().contentEquals(method.getSimpleName())
+                    && inherited.getParameters().size() == method.getParameters().size()
+                    && elementUtils.overrides(method, inherited, type)) {
+                return entry.getKey();
+            }
+        }
+        return key;
+    }
+
+    private static String key(ExecutableElement method) {
+        StringBuilder key = new StringBuilder(method.getSimpleName()).append('(');
+        for (VariableElement parameter: method.getParameters()) {
+            key.append(parameter.asType()).append(',');
+        }
+        return key.append(')').toString();
+    }
+
+    private static TypeElement asTypeElement(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) type).asElement();
+    }
+}
@@ -1,11 +1,14 @@
 package info.narmontas.jpatterns.processor.utils;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
  * <p>Method class provides tools for method generation.</p>
  * <p>Result of the tools is Method instance that can be
  * added to CodeGenerator instance (CodeGenerator.addMethod(Method)).</p>
+ * <p>Body lines are stored with their indentation level, indentation is
+ * written when the method is added to CodeGenerator.</p>
  */
 public class Method {
     private final String methodName;
@@ -14,7 +17,11 @@ public class Method {
     private String returnType;
     private final HashMap<String, String> parameters = new LinkedHashMap<>();
     private final List<String> bodyLines = new ArrayList<>();
+    private final List<Integer> bodyIndents = new ArrayList<>();
+    private final List<String> annotations = new ArrayList<>();
+    private final List<String> exceptions = new ArrayList<>();
     private boolean isStatic = false;
+    private boolean isConstructor = false;
 
     public Method(String methodName) {
         this.methodName = methodName;
@@ -39,6 +46,16 @@ public class Method {
         return this;
     }
 
+    /**
+     * Set method as constructor (return type is not generated).
+     * Method name should be the name of the class.
+     * @return Method
+     */
+    public Method setConstructor() {
+        this.isConstructor = true;
+        return this;
+    }
+
     /**
      * Set method return type
      * @param returnType String
@@ -49,6 +66,16 @@ public class Method {
         return this;
     }
 
+    /**
+     * Add method annotation. Ex., addAnnotation("Override") adds "@Override" line before the method.
+     * @param annotation String
+     * @return Method
+     */
+    public Method addAnnotation(String annotation) {
+        annotations.add(annotation);
+        return this;
+    }
+
     /**
      * Add method parameter
      * @param type String
@@ -60,13 +87,38 @@ public class Method {
         return this;
     }
 
+    /**
+     * Add exception to the throws clause
+     * @param exception String exception class name
+     * @return Method
+     */
+    public Method addThrows(String exception) {
+        exceptions.add(exception);
+        return this;
+    }
+
     /**
      * Add simple body line
      * @param line String
      * @return Method
      */
     public Method addBodyLine(String line) {
-        bodyLines.add(addTabsBefore(localIndent,  line + CodeGenerator.LINE_BREAK));
+        addLine(localIndent, line);
+        return this;
+    }
+
+    /**
+     * Add switch case (or default) label and statements indented below it.
+     * Ex., addCase("case ID", "return obj.getId();").
+     * @param label String case label without colon
+     * @param statements String
+     * @return Method
+     */
+    public Method addCase(String label, String... statements) {
+        addLine(localIndent, label + ":");
+        for (String statement: statements) {
+            addLine(localIndent + 1, statement);
+        }
         return this;
     }
 
@@ -76,8 +128,20 @@ public class Method {
      * @return Method
      */
     public Method addBodyLineAndOpenBlock(String line) {
-        bodyLines.add(addTabsBefore(localIndent,
-                line + CodeGenerator.BLOCK_OPEN + CodeGenerator.LINE_BREAK));
+        addLine(localIndent, line + CodeGenerator.BLOCK_OPEN);
+        localIndent++;
+        return this;
+    }
+
+    /**
+     * Close current block and start new one on the same line.
+     * Ex., closeBlockAndOpen("finally") adds "} finally {" line.
+     * @param line String
+     * @return Method
+     */
+    public Method closeBlockAndOpen(String line) {
+        localIndent--;
+        addLine(localIndent, CodeGenerator.BLOCK_CLOSE + CodeGenerator.SPACE + line + CodeGenerator.BLOCK_OPEN);
         localIndent++;
         return this;
     }
@@ -87,7 +151,7 @@ public class Method {
      * @return Method
      */
     public Method openBlock() {
-        bodyLines.add(CodeGenerator.BLOCK_OPEN + CodeGenerator.LINE_BREAK);
+        addLine(0, CodeGenerator.BLOCK_OPEN);
         localIndent++;
         return this;
     }
@@ -100,8 +164,7 @@ public class Method {
         if (localIndent == 0)
             return this;
         localIndent--;
-        bodyLines.add(addTabsBefore(localIndent,
-                CodeGenerator.BLOCK_CLOSE + CodeGenerator.LINE_BREAK));
+        addLine(localIndent, CodeGenerator.BLOCK_CLOSE);
         return this;
     }
 
@@ -112,26 +175,32 @@ public class Method {
         }
     }
 
+    private void addLine(int indent, String line) {
+        bodyIndents.add(indent);
+        bodyLines.add(line);
+    }
+
     // fill builder lines
-    void build(int closings, StringBuilder builder) {
-        StringBuilder externalIndents = new StringBuilder();
+    void build(int closings, Appendable builder) throws IOException {
         closeAllBlocks();
-        for (int i = 0; i < closings; i++) {
-            externalIndents.append(CodeGenerator.TAB);
-        }
-        String indent = externalIndents.toString();
+        String indent = CodeGenerator.indent(closings);
         builder.append(CodeGenerator.LINE_BREAK);
+        for (String annotation: annotations) {
+            builder.append(indent).append('@').append(annotation).append(CodeGenerator.LINE_BREAK);
+        }
         builder.append(indent);
         builder.append(CodeGenerator.getEncapsulation(encapsulation));
         if (isStatic) {
             builder.append(" static ");
         }
-        if (CodeGenerator.isValid(returnType)) {
-            builder.append(returnType);
-        } else {
-            builder.append("void");
+        if (!isConstructor) {
+            if (CodeGenerator.isValid(returnType)) {
+                builder.append(returnType);
+            } else {
+                builder.append("void");
+            }
+            builder.append(CodeGenerator.SPACE);
         }
-        builder.append(CodeGenerator.SPACE);
         builder.append(methodName);
         builder.append("(");
         boolean isTheFirstParam = true;
@@ -146,18 +215,15 @@ public class Method {
 
         }
         builder.append(")");
+        if (!exceptions.isEmpty()) {
+            builder.append(" throws ").append(String.join(", ", exceptions));
+        }
         builder.append(CodeGenerator.BLOCK_OPEN);
         builder.append(CodeGenerator.LINE_BREAK);
-        for (String line: bodyLines) {
-            builder.append(indent).append(line);
-        }
-    }
-
-    private String addTabsBefore(int tabCount, String line) {
-        StringBuilder indent = new StringBuilder();
-        for (int i = 0; i < tabCount; i++) {
-            indent.append(CodeGenerator.TAB);
+        for (int i = 0; i < bodyLines.size(); i++) {
+            builder.append(CodeGenerator.indent(closings + bodyIndents.get(i)))
+                    .append(bodyLines.get(i))
+                    .append(CodeGenerator.LINE_BREAK);
         }
-        return indent.toString() + line;
     }
 }
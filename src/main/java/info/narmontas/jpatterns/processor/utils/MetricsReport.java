@@ -0,0 +1,124 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import info.narmontas.jpatterns.processor.utils.ProcessingStatistics.Phase;
+import info.narmontas.jpatterns.processor.utils.ProcessingStatistics.Round;
+import info.narmontas.jpatterns.processor.utils.ProcessingStatistics.TypeMetrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>MetricsReport class writes ProcessingStatistics as JSON document:</p>
+ * <pre>
+ * {
+ *   "allocationSupported": true,
+ *   "rounds": [{"round": 1, "nanos": 0, "allocatedBytes": 0, "types": 0}],
+ *   "phases": {"VALIDATION": {"nanos": 0, "allocatedBytes": 0}, ...},
+ *   "types": [{"name": "org.example.Person", "round": 1, "properties": 0,
+ *              "sources": 0, "generatedChars": 0,
+ *              "phases": {"VALIDATION": 0, ...},
+ *              "checks": {"checkIfElementIsPOJO": 0, ...}}]
+ * }
+ * </pre>
+ * <p>Durations are in nanoseconds, allocatedBytes is -1 if the JVM cannot measure it.</p>
+ */
+public class MetricsReport {
+
+    private final ProcessingStatistics statistics;
+
+    public MetricsReport(ProcessingStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Writes report to the file (parent directories are created).
+     * @param file Path
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Report as JSON document.
+     * @return String
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"allocationSupported\": ").append(statistics.isAllocationSupported()).append(",\n");
+
+        json.append("  \"rounds\": [");
+        List<Round> rounds = statistics.getRounds();
+        for (int i = 0; i < rounds.size(); i++) {
+            Round round = rounds.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"round\": ").append(i + 1)
+                    .append(", \"nanos\": ").append(round.getNanos())
+                    .append(", \"allocatedBytes\": ").append(round.getAllocatedBytes())
+                    .append(", \"types\": ").append(round.getTypes()).append('}');
+        }
+        json.append(rounds.isEmpty() ? "],\n" : "\n  ],\n");
+
+        json.append("  \"phases\": {");
+        String separator = "\n";
+        for (Phase phase: Phase.values()) {
+            json.append(separator)
+                    .append("    \"").append(phase).append("\": {\"nanos\": ").append(statistics.getPhaseNanos(phase))
+                    .append(", \"allocatedBytes\": ").append(statistics.getPhaseAllocatedBytes(phase)).append('}');
+            separator = ",\n";
+        }
+        json.append("\n  },\n");
+
+        json.append("  \"types\": [");
+        List<TypeMetrics> types = statistics.getTypes();
+        for (int i = 0; i < types.size(); i++) {
+            appendType(json.append(i == 0 ? "\n" : ",\n"), types.get(i));
+        }
+        json.append(types.isEmpty() ? "]\n" : "\n  ]\n");
+        return json.append("}\n").toString();
+    }
+
+    private void appendType(StringBuilder json, TypeMetrics type) {
+        json.append("    {\"name\": ").append(quote(type.getName()))
+                .append(", \"round\": ").append(type.getRound())
+                .append(", \"properties\": ").append(type.getProperties())
+                .append(", \"sources\": ").append(type.getSources())
+                .append(", \"generatedChars\": ").append(type.getGeneratedChars())
+                .append(", \"phases\": {");
+        String separator = "";
+        for (Phase phase: Phase.values()) {
+            json.append(separator).append('"').append(phase).append("\": ").append(type.getPhaseNanos(phase));
+            separator = ", ";
+        }
+        json.append("}, \"checks\": {");
+        separator = "";
+        for (Map.Entry<String, Long> check: type.getCheckNanos().entrySet()) {
+            json.append(separator).append(quote(check.getKey())).append(": ").append(check.getValue());
+            separator = ", ";
+        }
+        json.append("}}");
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
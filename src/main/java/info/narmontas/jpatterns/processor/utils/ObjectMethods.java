@@ -0,0 +1,83 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>ObjectMethods class creates equals, hashCode and toString expressions over all properties
+ * of the type. Value class, Equality class and flyweight class differ only in the way
+ * a property value is accessed (field, getter of the argument, own getter).</p>
+ */
+final class ObjectMethods {
+    private final SourceModel model;
+
+    ObjectMethods(SourceModel model) {
+        this.model = model;
+    }
+
+    // Properties are compared without boxing: == for primitives (Float/Double.compare
+    // for floating point), Arrays.equals for arrays and Objects.equals for the rest
+    String getEqualsExpression(Function<String, String> left, Function<String, String> right) {
+        if (model.getProperties().isEmpty()) {
+            return "true";
+        }
+        return model.getProperties().entrySet().stream()
+                .map(property -> getEqualsExpression(property.getKey(), property.getValue(),
+                        left.apply(property.getKey()), right.apply(property.getKey())))
+                .collect(Collectors.joining(" && "));
+    }
+
+    private String getEqualsExpression(String name, String type, String left, String right) {
+        if (model.isPrimitive(name)) {
+            if ("float".equals(type) || "double".equals(type)) {
+                return SourceRenderer.getBoxedType(type) + ".compare(" + left + ", " + right + ") == 0";
+            }
+            return left + " == " + right;
+        }
+        if (model.isPrimitiveArray(name)) {
+            return "java.util.Arrays.equals(" + left + ", " + right + ")";
+        }
+        if (type.endsWith("[]")) {
+            return "java.util.Arrays.deepEquals(" + left + ", " + right + ")";
+        }
+        return "java.util.Objects.equals(" + left + ", " + right + ")";
+    }
+
+    // result = 31 * result + hash of the property, no varargs array and no boxing (unlike Objects.hash)
+    void addHashCodeLines(Method method, Function<String, String> value) {
+        model.getProperties().forEach((name, type) -> {
+            method.addBodyLine("result = 31 * result + " + getHashCodeExpression(name, type, value.apply(name)) + ";");
+        });
+    }
+
+    private String getHashCodeExpression(String name, String type, String value) {
+        if (model.isPrimitive(name)) {
+            return SourceRenderer.getBoxedType(type) + ".hashCode(" + value + ")";
+        }
+        if (model.isPrimitiveArray(name)) {
+            return "java.util.Arrays.hashCode(" + value + ")";
+        }
+        if (type.endsWith("[]")) {
+            return "java.util.Arrays.deepHashCode(" + value + ")";
+        }
+        return "java.util.Objects.hashCode(" + value + ")";
+    }
+
+    String getToStringExpression(Function<String, String> value) {
+        StringBuilder expression = new StringBuilder("\"").append(model.getSimpleName()).append('{');
+        String separator = "";
+        for (Map.Entry<String, String> property: model.getProperties().entrySet()) {
+            String propertyValue = value.apply(property.getKey());
+            if (model.isPrimitiveArray(property.getKey())) {
+                propertyValue = "java.util.Arrays.toString(" + propertyValue + ")";
+            } else if (property.getValue().endsWith("[]")) {
+                propertyValue = "java.util.Arrays.deepToString(" + propertyValue + ")";
+            }
+            expression.append(separator).append(model.getFieldName(property.getKey()))
+                    .append("=\" + ").append(propertyValue).append(" + \"");
+            separator = ", ";
+        }
+        return expression.append("}\"").toString();
+    }
+}
@@ -0,0 +1,304 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>ProcessingStatistics class collects time and heap allocation of the processor.</p>
+ * <p>Time and allocated bytes are recorded for every round and for every
+ * processing phase. Allocated bytes are measured for the processing thread and
+ * are reported as -1 if the JVM cannot measure them. Bytes allocated by other
+ * threads (parallel rendering) are added by {@link #addAllocatedBytes(Phase, long)}.</p>
+ * <p>Processing of every annotated type is recorded as {@link TypeMetrics}:
+ * phase durations, durations of Validator checks, number of properties
+ * and number of characters of generated sources.</p>
+ * <p>Disabled statistics (see {@link #disabled()}) record nothing.</p>
+ */
+public class ProcessingStatistics {
+
+    /**
+     * Processing phases.
+     */
+    public enum Phase {
+        /** Validator checks (no argument constructor, POJO). */
+        VALIDATION,
+        /** Member classification (PropertyModel). */
+        MODEL,
+        /**
+         * Source generation: renderers prepared from the model, CodeGenerator and Method,
+         * writing included if sources are streamed to the Filer.
+         */
+        GENERATION,
+        /** Writing buffered (cached) sources to the Filer. */
+        WRITING
+    }
+
+    /**
+     * Time and allocation of the single round.
+     */
+    public static class Round {
+        private final long nanos;
+        private final long allocatedBytes;
+        private final int types;
+
+        Round(long nanos, long allocatedBytes, int types) {
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+            this.types = types;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public int getTypes() {
+            return types;
+        }
+    }
+
+    /**
+     * Time spent on the single annotated type, number of its properties and characters of generated sources.
+     */
+    public static class TypeMetrics {
+        private final String name;
+        private final int round;
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private final Map<String, Long> checkNanos = new LinkedHashMap<>();
+        private int properties;
+        private int sources;
+        private long generatedChars;
+
+        TypeMetrics(String name, int round) {
+            this.name = name;
+            this.round = round;
+        }
+
+        public void addPhaseNanos(Phase phase, long nanos) {
+            phaseNanos[phase.ordinal()] += nanos;
+        }
+
+        public void addCheckNanos(String check, long nanos) {
+            checkNanos.merge(check, nanos, Long::sum);
+        }
+
+        public void setProperties(int properties) {
+            this.properties = properties;
+        }
+
+        public void addSource(long chars) {
+            sources++;
+            generatedChars += chars;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRound() {
+            return round;
+        }
+
+        public long getPhaseNanos(Phase phase) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        public Map<String, Long> getCheckNanos() {
+            return Collections.unmodifiableMap(checkNanos);
+        }
+
+        public int getProperties() {
+            return properties;
+        }
+
+        public int getSources() {
+            return sources;
+        }
+
+        public long getGeneratedChars() {
+            return generatedChars;
+        }
+    }
+
+    private static final ProcessingStatistics DISABLED = new ProcessingStatistics(false);
+
+    private final boolean enabled;
+    private final Map<Phase, long[]> phases = new EnumMap<>(Phase.class);
+    private final List<Round> rounds = new ArrayList<>();
+    private final List<TypeMetrics> types = new ArrayList<>();
+    private long roundStartNanos;
+    private long roundStartBytes;
+    private long roundOtherThreadBytes;
+    private long phaseStartNanos;
+    private long phaseStartBytes;
+
+    public ProcessingStatistics() {
+        this(true);
+    }
+
+    private ProcessingStatistics(boolean enabled) {
+        this.enabled = enabled;
+        for (Phase phase: Phase.values()) {
+            phases.put(phase, new long[2]);
+        }
+    }
+
+    /**
+     * Statistics instance that records nothing.
+     * @return ProcessingStatistics
+     */
+    public static ProcessingStatistics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void startRound() {
+        if (!enabled) return;
+        roundStartBytes = AllocationCounter.INSTANCE.allocatedBytes();
+        roundStartNanos = System.nanoTime();
+    }
+
+    public void endRound(int types) {
+        if (!enabled) return;
+        long nanos = System.nanoTime() - roundStartNanos;
+        long bytes = bytesSince(roundStartBytes);
+        rounds.add(new Round(nanos, bytes < 0 ? bytes : bytes + roundOtherThreadBytes, types));
+        roundOtherThreadBytes = 0;
+    }
+
+    public void startPhase() {
+        if (!enabled) return;
+        phaseStartBytes = AllocationCounter.INSTANCE.allocatedBytes();
+        phaseStartNanos = System.nanoTime();
+    }
+
+    public void endPhase(Phase phase) {
+        endPhase(phase, null);
+    }
+
+    /**
+     * Ends the phase and adds its duration to the annotated type too.
+     * @param phase Phase
+     * @param type TypeMetrics or null
+     */
+    public void endPhase(Phase phase, TypeMetrics type) {
+        if (!enabled) return;
+        long nanos = System.nanoTime() - phaseStartNanos;
+        long[] totals = phases.get(phase);
+        totals[0] += nanos;
+        totals[1] += bytesSince(phaseStartBytes);
+        if (type != null) {
+            type.addPhaseNanos(phase, nanos);
+        }
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, used to measure work done outside
+     * of the processing thread.
+     * @return long allocated bytes or 0 if statistics are disabled or allocation is not measured
+     */
+    public long threadAllocatedBytes() {
+        if (!enabled) return 0;
+        return AllocationCounter.INSTANCE.allocatedBytes();
+    }
+
+    /**
+     * Adds bytes allocated by another thread to the phase and to the current round.
+     * @param phase Phase
+     * @param bytes long allocated bytes (see {@link #threadAllocatedBytes()})
+     */
+    public void addAllocatedBytes(Phase phase, long bytes) {
+        if (!enabled) return;
+        phases.get(phase)[1] += bytes;
+        roundOtherThreadBytes += bytes;
+    }
+
+    /**
+     * Starts recording of the annotated type in the current round.
+     * @param name String type name
+     * @return TypeMetrics or null if statistics are disabled
+     */
+    public TypeMetrics startType(String name) {
+        if (!enabled) return null;
+        TypeMetrics type = new TypeMetrics(name, rounds.size() + 1);
+        types.add(type);
+        return type;
+    }
+
+    public List<TypeMetrics> getTypes() {
+        return Collections.unmodifiableList(types);
+    }
+
+    /**
+     * True if allocated bytes are measured by the JVM.
+     * @return boolean
+     */
+    public boolean isAllocationSupported() {
+        return AllocationCounter.INSTANCE.isSupported();
+    }
+
+    public List<Round> getRounds() {
+        return Collections.unmodifiableList(rounds);
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phases.get(phase)[0];
+    }
+
+    public long getPhaseAllocatedBytes(Phase phase) {
+        return AllocationCounter.INSTANCE.isSupported() ? phases.get(phase)[1] : -1;
+    }
+
+    private static long bytesSince(long startBytes) {
+        AllocationCounter counter = AllocationCounter.INSTANCE;
+        return counter.isSupported() ? counter.allocatedBytes() - startBytes : -1;
+    }
+
+    // Initialized on the first use by enabled statistics only.
+    // com.sun.management.ThreadMXBean is not available on every JVM.
+    private static class AllocationCounter {
+        static final AllocationCounter INSTANCE = create();
+
+        private final com.sun.management.ThreadMXBean threadBean;
+
+        private AllocationCounter(com.sun.management.ThreadMXBean threadBean) {
+            this.threadBean = threadBean;
+        }
+
+        static AllocationCounter create() {
+            try {
+                ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+                if (bean instanceof com.sun.management.ThreadMXBean) {
+                    com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+                    if (sunBean.isThreadAllocatedMemorySupported()) {
+                        sunBean.setThreadAllocatedMemoryEnabled(true);
+                        return new AllocationCounter(sunBean);
+                    }
+                }
+            } catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+                // allocation is not measured
+            }
+            return new AllocationCounter(null);
+        }
+
+        boolean isSupported() {
+            return threadBean != null;
+        }
+
+        long allocatedBytes() {
+            return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+}
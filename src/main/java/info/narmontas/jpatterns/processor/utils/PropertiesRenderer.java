@@ -0,0 +1,88 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>PropertiesRenderer class renders Properties class: int id constant per property (in declaration order),
+ * NAMES list and static idOf, typeOf, get and set methods. Methods are switches over property ids,
+ * so properties are accessed by plain getter and builder setter calls.</p>
+ */
+final class PropertiesRenderer extends SourceRenderer {
+    static final String SUFFIX = "Properties";
+
+    PropertiesRenderer(SourceModel model) {
+        super(model, SUFFIX);
+    }
+
+    @Override
+    public void render(CodeGenerator table) {
+        Map<String, String> properties = model.getProperties();
+        table.definePackage(model.getPackageName());
+        table.defineFinalClass(Encapsulation.PUBLIC, className, null, false);
+        List<String> names = new ArrayList<>(properties.keySet());
+        List<String> quotedNames = new ArrayList<>();
+        for (int id = 0; id < names.size(); id++) {
+            table.addConstant(Encapsulation.PUBLIC, "int", model.getConstantName(names.get(id), ""),
+                    String.valueOf(id));
+            quotedNames.add("\"" + model.getFieldName(names.get(id)) + "\"");
+        }
+        table.addConstant(Encapsulation.PUBLIC, "java.util.List<" + stringType + ">", "NAMES",
+                "java.util.Collections.unmodifiableList(java.util.Arrays.asList("
+                        + String.join(", ", quotedNames) + "))");
+        table.addMethod(new Method(className)
+                .setConstructor()
+                .setEncapsulation(Encapsulation.PRIVATE));
+
+        Method idOf = new Method("idOf")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType("int")
+                .addParameter(stringType, "name")
+                .addBodyLineAndOpenBlock("switch (name)");
+        Method typeOf = new Method("typeOf")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType("java.lang.Class<?>")
+                .addParameter("int", "id")
+                .addBodyLineAndOpenBlock("switch (id)");
+        Method get = new Method("get")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType("java.lang.Object")
+                .addParameter(typeFullName, "obj")
+                .addParameter("int", "id")
+                .addBodyLineAndOpenBlock("switch (id)");
+        Method set = new Method("set")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType(builderFullName)
+                .addParameter(builderFullName, "builder")
+                .addParameter("int", "id")
+                .addParameter("java.lang.Object", "value")
+                .addBodyLineAndOpenBlock("switch (id)");
+        // Casts to generic types (collections, Map<K, V>, Optional<T>, ...) are unchecked
+        if (properties.values().stream().anyMatch(type -> type.indexOf('<') >= 0)) {
+            set.addAnnotation("java.lang.SuppressWarnings(\"unchecked\")");
+        }
+        for (int id = 0; id < names.size(); id++) {
+            String name = names.get(id);
+            String type = properties.get(name);
+            String label = "case " + model.getConstantName(name, "");
+            String valueType = model.isPrimitive(name) ? getBoxedType(type) : type;
+            int generic = type.indexOf('<');
+            idOf.addCase("case " + quotedNames.get(id), "return " + model.getConstantName(name, "") + ";");
+            typeOf.addCase(label, "return " + (generic < 0 ? type : type.substring(0, generic)) + ".class;");
+            get.addCase(label, "return obj." + name + "();");
+            set.addCase(label, "return builder.set" + model.getSubstring(name)
+                    + "((" + valueType + ") value);");
+        }
+        String unknown = "throw new java.lang.IllegalArgumentException(\"Unknown property id: \" + id);";
+        table.addMethod(idOf.addCase("default", "return -1;").closeBlock());
+        table.addMethod(typeOf.addCase("default", unknown).closeBlock());
+        table.addMethod(get.addCase("default", unknown).closeBlock());
+        table.addMethod(set.addCase("default", unknown).closeBlock());
+        table.build();
+    }
+}
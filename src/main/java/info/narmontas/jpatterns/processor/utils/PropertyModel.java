@@ -0,0 +1,488 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import info.narmontas.jpatterns.annotation.BuilderPattern;
+import info.narmontas.jpatterns.annotation.BuilderPatternIgnore;
+import info.narmontas.jpatterns.annotation.ConstructionStrategy;
+import info.narmontas.jpatterns.annotation.ColumnsPattern;
+import info.narmontas.jpatterns.annotation.FlyweightPattern;
+import info.narmontas.jpatterns.annotation.ValuePattern;
+import info.narmontas.jpatterns.processor.utils.MemberCache.Member;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>PropertyModel class holds accessors of the annotated type.</p>
+ * <p>Methods of the type (parent class members included) are resolved and classified
+ * by MemberCache into getters, setters, collections, primitives, primitive arrays
+ * and references. Properties keep the order of the methods (parent class properties first).
+ * The same model is used by Validator and by builder generation.</p>
+ * <p>Types annotated with @ValuePattern are value models: only abstract getters
+ * are properties, the other abstract methods are collected for validation.</p>
+ * <p>Properties of records are record components, properties of the class with
+ * annotated constructor are constructor parameters (read by the matching getters if there are any).
+ * Both are built by the constructor.</p>
+ */
+public class PropertyModel {
+    public static final String LIST_TYPE = "java.util.List";
+    public static final String SET_TYPE = "java.util.Set";
+
+    private static final String RECORD_KIND = "RECORD";
+
+    private final TypeElement type;
+    private final ExecutableElement constructor;
+    private final boolean record;
+    private final Validator validator;
+    private final ConstructionStrategy strategy;
+    private final boolean reusable;
+    private final boolean value;
+    private final boolean equality;
+    private final boolean hashCodeCached;
+    private final boolean flyweight;
+    private final boolean columns;
+    private final boolean codec;
+    private final boolean propertyTable;
+    private final boolean rowReader;
+    private final boolean batch;
+    private final List<ExecutableElement> getters = new ArrayList<>();
+    private final List<ExecutableElement> setters = new ArrayList<>();
+    private final HashMap<String, String> collections = new LinkedHashMap<>();
+    private final HashMap<String, String> primitives = new LinkedHashMap<>();
+    private final HashMap<String, String> references = new LinkedHashMap<>();
+    private final HashMap<String, String> primitiveArrays = new LinkedHashMap<>();
+    private final HashMap<String, String> properties = new LinkedHashMap<>();
+    private final List<ExecutableElement> abstractMethods = new ArrayList<>();
+    private final List<String> constructorOrder = new ArrayList<>();
+    private final List<String> unreadableProperties = new ArrayList<>();
+    private final Map<String, TypeMirror> propertyTypes = new HashMap<>();
+
+    public PropertyModel(TypeElement type, Elements elementUtils, Validator validator) {
+        this(type, new MemberCache(elementUtils), validator);
+    }
+
+    /**
+     * Creates model with methods resolved by the provided cache (shared by the models of one round).
+     * @param type TypeElement
+     * @param members MemberCache
+     * @param validator Validator
+     */
+    public PropertyModel(TypeElement type, MemberCache members, Validator validator) {
+        this(type, null, members, validator);
+    }
+
+    /**
+     * Creates model of the type which builder calls provided constructor
+     * (constructor is annotated with @BuilderPattern).
+     * @param type TypeElement
+     * @param constructor ExecutableElement annotated constructor or null
+     * @param members MemberCache
+     * @param validator Validator
+     */
+    public PropertyModel(TypeElement type, ExecutableElement constructor, MemberCache members, Validator validator) {
+        this.type = type;
+        this.constructor = constructor;
+        this.record = type.getKind().name().equals(RECORD_KIND);
+        this.validator = validator;
+        BuilderPattern annotation = (constructor != null ? constructor : type).getAnnotation(BuilderPattern.class);
+        if (record || constructor != null) {
+            this.strategy = ConstructionStrategy.CONSTRUCTOR;
+        } else {
+            this.strategy = annotation == null ? ConstructionStrategy.SETTERS : annotation.strategy();
+        }
+        this.reusable = annotation != null && annotation.reusable();
+        this.equality = annotation != null && annotation.equality();
+        this.codec = annotation != null && annotation.codec();
+        this.propertyTable = annotation != null && annotation.properties();
+        this.rowReader = annotation != null && annotation.rowReader();
+        this.batch = annotation != null && annotation.batch();
+        ValuePattern valueAnnotation = type.getAnnotation(ValuePattern.class);
+        this.value = valueAnnotation != null;
+        this.hashCodeCached = valueAnnotation != null && valueAnnotation.cacheHashCode();
+        this.flyweight = type.getAnnotation(FlyweightPattern.class) != null;
+        this.columns = type.getAnnotation(ColumnsPattern.class) != null;
+        if (record) {
+            addRecordComponents();
+        } else if (constructor != null) {
+            addConstructorParameters(members);
+        } else {
+            for (Member member: members.getMembers(type)) {
+                classify(member);
+            }
+        }
+    }
+
+    // Record components are the instance fields of the record (javax.lang.model of Java 8
+    // has no record API), accessors are named after components
+    private void addRecordComponents() {
+        List<ExecutableElement> methods = ElementFilter.methodsIn(type.getEnclosedElements());
+        for (VariableElement field: ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            String name = field.getSimpleName().toString();
+            for (ExecutableElement method: methods) {
+                if (method.getParameters().isEmpty() && method.getSimpleName().contentEquals(name)) {
+                    getters.add(method);
+                }
+            }
+            addProperty(name, field.asType());
+            constructorOrder.add(name);
+        }
+    }
+
+    // Parameter is read by the getter of the same property name and type, if there is one
+    private void addConstructorParameters(MemberCache members) {
+        for (VariableElement parameter: constructor.getParameters()) {
+            String parameterName = parameter.getSimpleName().toString();
+            String parameterType = parameter.asType().toString();
+            String name = parameterName;
+            for (Member member: members.getMembers(type)) {
+                if (member.isGetter() && member.getMethod().getParameters().isEmpty()
+                        && validator.getFieldName(member.getName()).equals(parameterName)
+                        && member.getMethod().getReturnType().toString().equals(parameterType)) {
+                    name = member.getName();
+                    getters.add(member.getMethod());
+                    break;
+                }
+            }
+            if (name.equals(parameterName)) {
+                unreadableProperties.add(parameterName);
+            }
+            addProperty(name, parameter.asType());
+            constructorOrder.add(name);
+        }
+    }
+
+    private void addProperty(String name, TypeMirror typeMirror) {
+        String propertyType = typeMirror.toString();
+        addProperty(name, MemberCache.categoryOf(typeMirror, propertyType), propertyType, typeMirror);
+    }
+
+    private void addProperty(String name, MemberCache.Category category, String propertyType,
+                             TypeMirror typeMirror) {
+        propertyTypes.putIfAbsent(name, typeMirror);
+        properties.putIfAbsent(name, propertyType);
+        switch (category) {
+            case COLLECTION:
+                collections.putIfAbsent(name, propertyType);
+                break;
+            case PRIMITIVE:
+                primitives.putIfAbsent(name, propertyType);
+                break;
+            case PRIMITIVE_ARRAY:
+                primitiveArrays.putIfAbsent(name, propertyType);
+                break;
+            default:
+                references.putIfAbsent(name, propertyType);
+        }
+    }
+
+    private void classify(Member member) {
+        if (value && member.isAbstract()) {
+            abstractMethods.add(member.getMethod());
+        }
+        if (member.isSetter()) {
+            setters.add(member.getMethod());
+            return;
+        }
+        if (!member.isGetter()) {
+            return;
+        }
+        getters.add(member.getMethod());
+        if (member.isIgnored() || (value && !member.isAbstract())) {
+            return;
+        }
+        addProperty(member.getName(), member.getCategory(), member.getReturnType(),
+                member.getMethod().getReturnType());
+    }
+
+    /**
+     * Finds constructor of the type which parameters match all properties by name and type
+     * (canonical constructor of the record and annotated constructor are used as they are).
+     * If parameter names are not available (arg0, arg1, ...), parameters are matched by type
+     * when every property has a different type.
+     * @return List of getter names in the order of constructor parameters or null if there is no such constructor
+     */
+    public List<String> getConstructorProperties() {
+        if (record || constructor != null) {
+            return constructorOrder;
+        }
+        HashMap<String, String> properties = getProperties();
+        for (ExecutableElement constructor: ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PRIVATE)
+                    || constructor.getParameters().size() != properties.size()) {
+                continue;
+            }
+            boolean byType = !hasParameterNames(constructor);
+            List<String> order = new ArrayList<>();
+            for (VariableElement parameter: constructor.getParameters()) {
+                String parameterName = parameter.getSimpleName().toString();
+                String parameterType = parameter.asType().toString();
+                properties.forEach((name, propertyType) -> {
+                    if ((byType || validator.getFieldName(name).equals(parameterName))
+                            && propertyType.equals(parameterType)) {
+                        order.add(name);
+                    }
+                });
+            }
+            if (order.size() == properties.size() && order.stream().distinct().count() == order.size()) {
+                return order;
+            }
+        }
+        return null;
+    }
+
+    // Constructors read from class files compiled without -parameters have synthesized names
+    private static boolean hasParameterNames(ExecutableElement constructor) {
+        List<? extends VariableElement> parameters = constructor.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (!parameters.get(i).getSimpleName().contentEquals("arg" + i)) {
+                return true;
+            }
+        }
+        return parameters.isEmpty();
+    }
+
+    /**
+     * Finds field with provided name in the type or in the parent classes
+     * (the closest declaration is returned, as in Java field access).
+     * @param fieldName String
+     * @return VariableElement or null
+     */
+    public VariableElement getField(String fieldName) {
+        for (TypeElement current = type; current != null; current = getParent(current)) {
+            for (VariableElement field: ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getSimpleName().contentEquals(fieldName)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static TypeElement getParent(TypeElement type) {
+        TypeMirror parent = type.getSuperclass();
+        if (parent.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) parent).asElement();
+    }
+
+    /**
+     * Constructor annotated with @BuilderPattern or null if the type is annotated.
+     * @return ExecutableElement
+     */
+    public ExecutableElement getConstructor() {
+        return constructor;
+    }
+
+    /**
+     * True if the type is a record.
+     * @return boolean
+     */
+    public boolean isRecord() {
+        return record;
+    }
+
+    /**
+     * Properties (constructor parameters) without getters. Builder cannot copy them in from(source).
+     * @return List of parameter names
+     */
+    public List<String> getUnreadableProperties() {
+        return unreadableProperties;
+    }
+
+    /**
+     * Construction strategy from @BuilderPattern annotation
+     * (CONSTRUCTOR for records and annotated constructors).
+     * @return ConstructionStrategy
+     */
+    public ConstructionStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * True if builder should have reset() and reusable() methods.
+     * @return boolean
+     */
+    public boolean isReusable() {
+        return reusable;
+    }
+
+    /**
+     * True if immutable value class should be generated (type is annotated with @ValuePattern).
+     * @return boolean
+     */
+    public boolean isValue() {
+        return value;
+    }
+
+    /**
+     * True if value class stores computed hashCode.
+     * @return boolean
+     */
+    public boolean isHashCodeCached() {
+        return hashCodeCached;
+    }
+
+    /**
+     * True if Equality class (static equals, hashCode and toString) should be generated.
+     * @return boolean
+     */
+    public boolean isEquality() {
+        return equality;
+    }
+
+    /**
+     * True if flyweight class over ByteBuffer should be generated (type is annotated with @FlyweightPattern).
+     * @return boolean
+     */
+    public boolean isFlyweight() {
+        return flyweight;
+    }
+
+    /**
+     * True if structure of arrays class should be generated (type is annotated with @ColumnsPattern).
+     * @return boolean
+     */
+    public boolean isColumns() {
+        return columns;
+    }
+
+    /**
+     * True if XxxCodec (binary serializer) should be generated.
+     * @return boolean
+     */
+    public boolean isCodec() {
+        return codec;
+    }
+
+    /**
+     * True if XxxProperties (property accessor table) should be generated.
+     * @return boolean
+     */
+    public boolean isPropertyTable() {
+        return propertyTable;
+    }
+
+    /**
+     * True if XxxRowReader (ResultSet/CSV row mapper) should be generated.
+     * @return boolean
+     */
+    public boolean isRowReader() {
+        return rowReader;
+    }
+
+    /**
+     * True if builder should have buildAll/buildInto methods building objects from column arrays.
+     * @return boolean
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * Type of the property.
+     * @param name String getter name
+     * @return TypeMirror or null if there is no such property
+     */
+    public TypeMirror getPropertyType(String name) {
+        return propertyTypes.get(name);
+    }
+
+    /**
+     * True if the type is an enum.
+     * @param typeMirror TypeMirror
+     * @return boolean
+     */
+    public static boolean isEnum(TypeMirror typeMirror) {
+        return typeMirror.getKind() == TypeKind.DECLARED
+                && ((DeclaredType) typeMirror).asElement().getKind() == ElementKind.ENUM;
+    }
+
+    /**
+     * Abstract methods of the value type (getters included). Empty if the model is not a value model.
+     * @return List of abstract methods
+     */
+    public List<ExecutableElement> getAbstractMethods() {
+        return abstractMethods;
+    }
+
+    /**
+     * All builder properties (getter name, type) in declaration order: order of the getters
+     * (parent class properties first), of the record components or of the constructor parameters.
+     * @return HashMap
+     */
+    public HashMap<String, String> getProperties() {
+        return new LinkedHashMap<>(properties);
+    }
+
+    /**
+     * Annotated type.
+     * @return TypeElement
+     */
+    public TypeElement getType() {
+        return type;
+    }
+
+    /**
+     * All getters of the type, including the ones annotated with @BuilderPatternIgnore.
+     * @return List of getters
+     */
+    public List<ExecutableElement> getGetters() {
+        return getters;
+    }
+
+    /**
+     * All setters of the type.
+     * @return List of setters
+     */
+    public List<ExecutableElement> getSetters() {
+        return setters;
+    }
+
+    /**
+     * Getters returning java.util.List or java.util.Set (getter name, return type).
+     * @return HashMap
+     */
+    public HashMap<String, String> getCollections() {
+        return collections;
+    }
+
+    /**
+     * Getters returning primitive types (getter name, return type).
+     * @return HashMap
+     */
+    public HashMap<String, String> getPrimitives() {
+        return primitives;
+    }
+
+    /**
+     * Getters returning primitive arrays, ex., long[] (getter name, return type).
+     * @return HashMap
+     */
+    public HashMap<String, String> getPrimitiveArrays() {
+        return primitiveArrays;
+    }
+
+    /**
+     * Getters returning other reference types (getter name, return type).
+     * @return HashMap
+     */
+    public HashMap<String, String> getReferences() {
+        return references;
+    }
+}
@@ -0,0 +1,225 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>RowReaderRenderer class renders RowReader class. Column labels (ResultSet metadata or CSV header)
+ * are bound to property indexes once, rows are read into one builder instance:</p>
+ * <ul>
+ *     <li>ResultSet - primitives by getLong/getInt/..., boxed primitives with wasNull() check,
+ *     enums by name, chars as the first character of the String</li>
+ *     <li>CSV fields - primitives by Long.parseLong/..., empty field is default value
+ *     (0, false) of primitive properties and null of boxed primitives and enums.
+ *     Records are split by readFields (quoted fields with commas, line breaks and "" are supported)</li>
+ * </ul>
+ * <p>Every bound property is set for every row, so values are not carried over from the previous row.</p>
+ */
+final class RowReaderRenderer extends SourceRenderer {
+    static final String SUFFIX = "RowReader";
+
+    RowReaderRenderer(SourceModel model) {
+        super(model, SUFFIX);
+    }
+
+    @Override
+    public void render(CodeGenerator reader) {
+        Map<String, String> properties = model.getProperties();
+        reader.definePackage(model.getPackageName());
+        reader.defineFinalClass(Encapsulation.PUBLIC, className, null, false);
+        reader.addFinalField(Encapsulation.PRIVATE, "int[]", "columns");
+        reader.addFinalField(Encapsulation.PRIVATE, builderFullName, "builder");
+        reader.addMethod(new Method(className)
+                .setConstructor()
+                .setEncapsulation(Encapsulation.PRIVATE)
+                .addParameter("int[]", "columns")
+                .addBodyLine("this.columns = columns;")
+                .addBodyLine("this.builder = " + builderFullName + ".create();"));
+
+        String consumer = "java.util.function.Consumer<? super " + typeFullName + ">";
+        reader.addMethod(new Method("of")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType(classFullName)
+                .addParameter("java.sql.ResultSet", "resultSet")
+                .addThrows("java.sql.SQLException")
+                .addBodyLine("java.sql.ResultSetMetaData metaData = resultSet.getMetaData();")
+                .addBodyLine(stringType + "[] labels = new " + stringType + "[metaData.getColumnCount()];")
+                .addBodyLineAndOpenBlock("for (int i = 0; i < labels.length; i++)")
+                .addBodyLine("labels[i] = metaData.getColumnLabel(i + 1);")
+                .closeBlock()
+                .addBodyLine("return new " + classFullName + "(bind(labels, 1));"));
+        reader.addMethod(new Method("of")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType(classFullName)
+                .addParameter(stringType + "[]", "header")
+                .addBodyLine("return new " + classFullName + "(bind(header, 0));"));
+        reader.addMethod(new Method("readAll")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .addParameter("java.sql.ResultSet", "resultSet")
+                .addParameter(consumer, "consumer")
+                .addThrows("java.sql.SQLException")
+                .addBodyLine(classFullName + " reader = of(resultSet);")
+                .addBodyLineAndOpenBlock("while (resultSet.next())")
+                .addBodyLine("consumer.accept(reader.read(resultSet));")
+                .closeBlock());
+        reader.addMethod(new Method("readAll")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .addParameter("java.io.BufferedReader", "csv")
+                .addParameter(consumer, "consumer")
+                .addThrows("java.io.IOException")
+                .addBodyLine(stringType + "[] fields = readFields(csv);")
+                .addBodyLineAndOpenBlock("if (fields == null)")
+                .addBodyLine("return;")
+                .closeBlock()
+                .addBodyLine(classFullName + " reader = of(fields);")
+                .addBodyLineAndOpenBlock("while ((fields = readFields(csv)) != null)")
+                .addBodyLineAndOpenBlock("if (fields.length > 1 || !fields[0].isEmpty())")
+                .addBodyLine("consumer.accept(reader.read(fields));")
+                .closeBlock()
+                .closeBlock());
+        reader.addMethod(getReadFieldsMethod());
+
+        Method readRow = new Method("read")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType(typeFullName)
+                .addParameter("java.sql.ResultSet", "resultSet")
+                .addThrows("java.sql.SQLException");
+        Method readFields = new Method("read")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType(typeFullName)
+                .addParameter(stringType + "[]", "fields");
+        Method bind = new Method("bind")
+                .setEncapsulation(Encapsulation.PRIVATE)
+                .setStatic()
+                .setReturnType("int[]")
+                .addParameter(stringType + "[]", "labels")
+                .addParameter("int", "first")
+                .addBodyLine("int[] columns = new int[" + properties.size() + "];")
+                .addBodyLine("java.util.Arrays.fill(columns, -1);")
+                .addBodyLineAndOpenBlock("for (int i = 0; i < labels.length; i++)")
+                .addBodyLineAndOpenBlock("switch (labels[i].trim().replace(\"_\", \"\").toLowerCase(java.util.Locale.ROOT))");
+        int index = 0;
+        for (Map.Entry<String, String> property: properties.entrySet()) {
+            String name = property.getKey();
+            String column = "columns[" + index + "]";
+            bind.addCase("case \"" + model.getFieldName(name).toLowerCase(Locale.ROOT) + "\"",
+                    column + " = first + i;", "break;");
+            readRow.addBodyLineAndOpenBlock("if (" + column + " >= 0)");
+            addColumnReadLines(readRow, name, property.getValue(), "resultSet", column);
+            readRow.closeBlock();
+            readFields.addBodyLineAndOpenBlock("if (" + column + " >= 0)");
+            addColumnReadLines(readFields, name, property.getValue(), null, "fields[" + column + "]");
+            readFields.closeBlock();
+            index++;
+        }
+        reader.addMethod(readRow.addBodyLine("return builder.build();"));
+        reader.addMethod(readFields.addBodyLine("return builder.build();"));
+        reader.addMethod(bind.closeBlock()
+                .closeBlock()
+                .addBodyLine("return columns;"));
+        reader.build();
+    }
+
+    // One CSV record: fields are split on commas outside of quotes, quoted fields may contain
+    // commas, line breaks and doubled quotes ("" is one quote). Returns null at the end of input.
+    private Method getReadFieldsMethod() {
+        return new Method("readFields")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setStatic()
+                .setReturnType(stringType + "[]")
+                .addParameter("java.io.BufferedReader", "csv")
+                .addThrows("java.io.IOException")
+                .addBodyLine(stringType + " line = csv.readLine();")
+                .addBodyLineAndOpenBlock("if (line == null)")
+                .addBodyLine("return null;")
+                .closeBlock()
+                .addBodyLine("java.util.List<" + stringType + "> fields = new java.util.ArrayList<>();")
+                .addBodyLine("java.lang.StringBuilder field = new java.lang.StringBuilder();")
+                .addBodyLine("boolean quoted = false;")
+                .addBodyLine("int i = 0;")
+                .addBodyLineAndOpenBlock("while (true)")
+                .addBodyLineAndOpenBlock("if (i == line.length())")
+                .addBodyLineAndOpenBlock("if (!quoted)")
+                .addBodyLine("break;")
+                .closeBlock()
+                .addBodyLine("line = csv.readLine();")
+                .addBodyLineAndOpenBlock("if (line == null)")
+                .addBodyLine("throw new java.io.IOException(\"Unterminated quoted CSV field: \" + field);")
+                .closeBlock()
+                .addBodyLine("field.append('\\n');")
+                .addBodyLine("i = 0;")
+                .addBodyLine("continue;")
+                .closeBlock()
+                .addBodyLine("char c = line.charAt(i++);")
+                .addBodyLineAndOpenBlock("if (c == '\"')")
+                .addBodyLineAndOpenBlock("if (quoted && i < line.length() && line.charAt(i) == '\"')")
+                .addBodyLine("field.append(c);")
+                .addBodyLine("i++;")
+                .addBodyLine("continue;")
+                .closeBlock()
+                .addBodyLine("quoted = !quoted;")
+                .addBodyLine("continue;")
+                .closeBlock()
+                .addBodyLineAndOpenBlock("if (c == ',' && !quoted)")
+                .addBodyLine("fields.add(field.toString());")
+                .addBodyLine("field.setLength(0);")
+                .addBodyLine("continue;")
+                .closeBlock()
+                .addBodyLine("field.append(c);")
+                .closeBlock()
+                .addBodyLine("fields.add(field.toString());")
+                .addBodyLine("return fields.toArray(new " + stringType + "[0]);");
+    }
+
+    // ResultSet column (resultSet is not null) or CSV field (resultSet is null)
+    private void addColumnReadLines(Method read, String name, String type, String resultSet, String column) {
+        String setter = "builder.set" + model.getSubstring(name);
+        String local = model.getFieldName(name) + "Value";
+        boolean primitive = model.isPrimitive(name);
+        String primitiveType = primitive ? type : getUnboxedType(type);
+        if (stringType.equals(type)) {
+            read.addBodyLine(setter + "(" + (resultSet == null ? column : resultSet + ".getString(" + column + ")")
+                    + ");");
+            return;
+        }
+        if (resultSet != null && !model.isEnum(type) && !"char".equals(primitiveType)) {
+            String value = resultSet + ".get" + getTypeSuffix(primitiveType) + "(" + column + ")";
+            if (primitive) {
+                read.addBodyLine(setter + "(" + value + ");");
+            } else {
+                read.addBodyLine(primitiveType + " " + local + " = " + value + ";")
+                        .addBodyLine(setter + "(" + resultSet + ".wasNull() ? null : " + local + ");");
+            }
+            return;
+        }
+        read.addBodyLine(stringType + " " + local + " = "
+                + (resultSet == null ? column : resultSet + ".getString(" + column + ")") + ";");
+        String empty = resultSet == null ? local + ".isEmpty()" : local + " == null";
+        if ("char".equals(primitiveType)) {
+            empty = resultSet == null ? local + ".isEmpty()" : local + " == null || " + local + ".isEmpty()";
+        }
+        String parsed;
+        if ("char".equals(primitiveType)) {
+            parsed = primitive ? local + ".charAt(0)" : type + ".valueOf(" + local + ".charAt(0))";
+        } else if (primitive) {
+            parsed = getBoxedType(primitiveType) + ".parse" + getTypeSuffix(primitiveType) + "(" + local + ")";
+        } else {
+            parsed = type + ".valueOf(" + local + ")";
+        }
+        String defaultValue;
+        if (!primitive) {
+            defaultValue = "null";
+        } else if ("boolean".equals(primitiveType)) {
+            defaultValue = "false";
+        } else if ("char".equals(primitiveType)) {
+            defaultValue = "'\\0'";
+        } else {
+            defaultValue = "0";
+        }
+        read.addBodyLine(setter + "(" + empty + " ? " + defaultValue + " : " + parsed + ");");
+    }
+}
@@ -0,0 +1,314 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import info.narmontas.jpatterns.annotation.ConstructionStrategy;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>SourceModel class is the snapshot of the single annotated type shared by its renderers:
+ * names, properties (in declaration order and by kind), construction strategy and options.</p>
+ * <p>Everything is copied from PropertyModel by the constructor, which should be called
+ * on the processing thread. The snapshot is never changed, so renderers can read it on other threads
+ * without javax.lang.model elements.</p>
+ */
+public final class SourceModel {
+    private final Validator validator;
+    private final Map<String, String> properties;
+    private final Map<String, String> collections;
+    private final Map<String, String> primitives;
+    private final Map<String, String> references;
+    private final Map<String, String> primitiveArrays;
+    private final ConstructionStrategy strategy;
+    private final List<String> constructorProperties;
+    private final Set<String> enumTypes = new HashSet<>();
+    private final boolean reusable;
+    private final boolean valueType;
+    private final boolean equalityType;
+    private final boolean hashCodeCached;
+    private final boolean isInterface;
+    private final boolean readable;
+    private final boolean flyweightType;
+    private final boolean codecType;
+    private final boolean propertyTableType;
+    private final boolean rowReaderType;
+    private final boolean batch;
+    private final boolean columnsType;
+
+    private final String simpleName;
+    private final String packageName;
+
+    public SourceModel(PropertyModel model, Validator validator) {
+        TypeElement type = model.getType();
+        this.validator = validator;
+        this.properties = Collections.unmodifiableMap(model.getProperties());
+        this.collections = Collections.unmodifiableMap(new LinkedHashMap<>(model.getCollections()));
+        this.primitives = Collections.unmodifiableMap(new LinkedHashMap<>(model.getPrimitives()));
+        this.references = Collections.unmodifiableMap(new LinkedHashMap<>(model.getReferences()));
+        this.primitiveArrays = Collections.unmodifiableMap(new LinkedHashMap<>(model.getPrimitiveArrays()));
+        this.strategy = model.getStrategy();
+        this.constructorProperties = strategy == ConstructionStrategy.CONSTRUCTOR && !model.isValue()
+                ? Collections.unmodifiableList(new ArrayList<>(model.getConstructorProperties()))
+                : null;
+        this.reusable = model.isReusable();
+        this.valueType = model.isValue();
+        this.equalityType = model.isEquality();
+        this.hashCodeCached = model.isHashCodeCached();
+        this.isInterface = type.getKind() == ElementKind.INTERFACE;
+        this.readable = model.getUnreadableProperties().isEmpty();
+        this.flyweightType = model.isFlyweight();
+        this.codecType = model.isCodec();
+        this.propertyTableType = model.isPropertyTable();
+        this.rowReaderType = model.isRowReader();
+        this.batch = model.isBatch();
+        this.columnsType = model.isColumns();
+        if (codecType || rowReaderType) {
+            for (String name: properties.keySet()) {
+                TypeMirror propertyType = model.getPropertyType(name);
+                if (PropertyModel.isEnum(propertyType)) {
+                    enumTypes.add(propertyType.toString());
+                } else if (collections.containsKey(name)) {
+                    ((DeclaredType) propertyType).getTypeArguments().stream()
+                            .filter(PropertyModel::isEnum)
+                            .forEach(argument -> enumTypes.add(argument.toString()));
+                }
+            }
+        }
+
+        simpleName = type.getSimpleName().toString();
+        List<PackageElement> packages =
+                ElementFilter.packagesIn(Collections.singletonList(type.getEnclosingElement()));
+        packageName = packages.isEmpty() || packages.get(0).isUnnamed()
+                ? null
+                : packages.get(0).getQualifiedName().toString();
+    }
+
+    /**
+     * Renderers of the generated classes: builder first, then one renderer per enabled pattern.
+     * @return List
+     */
+    public List<SourceRenderer> getRenderers() {
+        List<SourceRenderer> renderers = new ArrayList<>();
+        renderers.add(new BuilderRenderer(this));
+        if (valueType) {
+            renderers.add(new ValueRenderer(this));
+        }
+        if (equalityType) {
+            renderers.add(new EqualityRenderer(this));
+        }
+        if (codecType) {
+            renderers.add(new CodecRenderer(this));
+        }
+        if (propertyTableType) {
+            renderers.add(new PropertiesRenderer(this));
+        }
+        if (rowReaderType) {
+            renderers.add(new RowReaderRenderer(this));
+        }
+        if (columnsType) {
+            renderers.add(new ColumnsRenderer(this));
+        }
+        if (flyweightType) {
+            renderers.add(new FlyweightRenderer(this));
+        }
+        return renderers;
+    }
+
+    /**
+     * <p>Signature of everything the renderers read: names, properties of every kind in their order,
+     * enum types, construction strategy, constructor parameters and options.
+     * It is built from this snapshot only, so facts derived from javax.lang.model
+     * (enum property types, constructor matching by synthesized parameter names) are part of it.</p>
+     * <p>Equal signatures produce equal sources.</p>
+     * @return String
+     */
+    public String getSignature() {
+        StringBuilder signature = new StringBuilder("type ").append(packageName).append(' ').append(simpleName)
+                .append(isInterface ? " interface" : " class")
+                .append("\nstrategy ").append(strategy)
+                .append("\nconstructor ").append(constructorProperties)
+                .append("\noptions reusable=").append(reusable)
+                .append(" value=").append(valueType)
+                .append(" equality=").append(equalityType)
+                .append(" hashCodeCached=").append(hashCodeCached)
+                .append(" readable=").append(readable)
+                .append(" flyweight=").append(flyweightType)
+                .append(" codec=").append(codecType)
+                .append(" properties=").append(propertyTableType)
+                .append(" rowReader=").append(rowReaderType)
+                .append(" batch=").append(batch)
+                .append(" columns=").append(columnsType);
+        appendProperties(signature, "property", properties);
+        appendProperties(signature, "collection", collections);
+        appendProperties(signature, "primitive", primitives);
+        appendProperties(signature, "reference", references);
+        appendProperties(signature, "primitiveArray", primitiveArrays);
+        enumTypes.stream().sorted().forEach(type -> signature.append("\nenum ").append(type));
+        return signature.toString();
+    }
+
+    private void appendProperties(StringBuilder signature, String kind, Map<String, String> properties) {
+        properties.forEach((name, type) ->
+                signature.append('\n').append(kind).append(' ').append(type).append(' ').append(name));
+    }
+
+    // Names
+
+    public String getSimpleName() {
+        return simpleName;
+    }
+
+    /**
+     * Package name or null if the type is in the unnamed package.
+     * @return String
+     */
+    public String getPackageName() {
+        return packageName;
+    }
+
+    /**
+     * Full name of the generated class, ex., Person + Builder - com.example.PersonBuilder.
+     * Empty suffix gives the full name of the annotated type.
+     * @param suffix String
+     * @return String
+     */
+    public String getFullName(String suffix) {
+        String className = simpleName + suffix;
+        if (packageName == null || packageName.isEmpty()) {
+            return className;
+        }
+        return packageName + "." + className;
+    }
+
+    public String getFieldName(String accessorName) {
+        return validator.getFieldName(accessorName);
+    }
+
+    /**
+     * Accessor name without prefix, ex., getName, setName - Name.
+     * @param accessorName String
+     * @return String
+     */
+    public String getSubstring(String accessorName) {
+        return validator.getSubstring(accessorName);
+    }
+
+    // lastPrice, _OFFSET - LAST_PRICE_OFFSET
+    public String getConstantName(String accessorName, String suffix) {
+        String fieldName = getFieldName(accessorName);
+        StringBuilder constant = new StringBuilder();
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (i > 0 && Character.isUpperCase(c) && !Character.isUpperCase(fieldName.charAt(i - 1))) {
+                constant.append('_');
+            }
+            constant.append(Character.toUpperCase(c));
+        }
+        return constant.append(suffix).toString();
+    }
+
+    // Properties
+
+    /**
+     * All properties (getter name - type) in declaration order.
+     * @return Map
+     */
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public Map<String, String> getCollections() {
+        return collections;
+    }
+
+    public Map<String, String> getPrimitives() {
+        return primitives;
+    }
+
+    public Map<String, String> getReferences() {
+        return references;
+    }
+
+    public Map<String, String> getPrimitiveArrays() {
+        return primitiveArrays;
+    }
+
+    public boolean isCollection(String name) {
+        return collections.containsKey(name);
+    }
+
+    public boolean isPrimitive(String name) {
+        return primitives.containsKey(name);
+    }
+
+    public boolean isPrimitiveArray(String name) {
+        return primitiveArrays.containsKey(name);
+    }
+
+    /**
+     * True if the type is an enum type of a property or a collection item
+     * (known for Codec and RowReader only).
+     * @param type String
+     * @return boolean
+     */
+    public boolean isEnum(String type) {
+        return enumTypes.contains(type);
+    }
+
+    public ConstructionStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Properties passed to the constructor by build() or null if the POJO is not built by the constructor.
+     * @return List
+     */
+    public List<String> getConstructorProperties() {
+        return constructorProperties;
+    }
+
+    // Options
+
+    public boolean isReusable() {
+        return reusable;
+    }
+
+    public boolean isValue() {
+        return valueType;
+    }
+
+    public boolean isHashCodeCached() {
+        return hashCodeCached;
+    }
+
+    public boolean isInterface() {
+        return isInterface;
+    }
+
+    /**
+     * True if every property has a getter, so builder has from() method.
+     * @return boolean
+     */
+    public boolean isReadable() {
+        return readable;
+    }
+
+    public boolean isFlyweight() {
+        return flyweightType;
+    }
+
+    public boolean isBatch() {
+        return batch;
+    }
+}
@@ -0,0 +1,89 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import java.util.Locale;
+
+/**
+ * <p>SourceRenderer is the base class of the renderers of the classes generated for the single
+ * annotated type: builder, value class (@ValuePattern), Equality class, flyweight class (@FlyweightPattern),
+ * Codec class, Properties class, RowReader class and Columns class (@ColumnsPattern).</p>
+ * <p>Renderers read the shared SourceModel only and write to the given CodeGenerator,
+ * so they do not use javax.lang.model elements and can be called on other threads.</p>
+ */
+public abstract class SourceRenderer {
+    static final String listType = PropertyModel.LIST_TYPE;
+    static final String setType = PropertyModel.SET_TYPE;
+    static final String stringType = "java.lang.String";
+
+    protected final SourceModel model;
+    protected final String className;
+    protected final String classFullName;
+    protected final String typeFullName;
+    protected final String builderFullName;
+
+    /**
+     * @param model SourceModel
+     * @param suffix String name of the generated class is the type name with the suffix, ex., Builder
+     */
+    SourceRenderer(SourceModel model, String suffix) {
+        this.model = model;
+        this.className = model.getSimpleName() + suffix;
+        this.classFullName = model.getFullName(suffix);
+        this.typeFullName = model.getFullName("");
+        this.builderFullName = model.getFullName(BuilderRenderer.SUFFIX);
+    }
+
+    /**
+     * Full name of the generated class.
+     * @return String
+     */
+    public String getName() {
+        return classFullName;
+    }
+
+    /**
+     * Renders the generated class.
+     * @param cg CodeGenerator
+     */
+    public abstract void render(CodeGenerator cg);
+
+
+    // Type helpers
+
+    static String getBoxedType(String primitiveType) {
+        switch (primitiveType) {
+            case "int":
+                return "java.lang.Integer";
+            case "char":
+                return "java.lang.Character";
+            default:
+                return "java.lang." + Character.toUpperCase(primitiveType.charAt(0)) + primitiveType.substring(1);
+        }
+    }
+
+    static String getUnboxedType(String boxedType) {
+        switch (boxedType) {
+            case "java.lang.Integer":
+                return "int";
+            case "java.lang.Character":
+                return "char";
+            default:
+                return boxedType.substring("java.lang.".length()).toLowerCase(Locale.ROOT);
+        }
+    }
+
+    static String getComponentType(String arrayType) {
+        return arrayType.substring(0, arrayType.length() - 2);
+    }
+
+    static String extractGenericType(String type) {
+        int from = type.indexOf('<');
+        int to = type.lastIndexOf('>');
+        if (from == -1 || to == -1) return null;
+        return type.substring(from + 1, to);
+    }
+
+    // long - Long, as in ByteBuffer.getLong, DataInput.readLong, ResultSet.getLong and Long.parseLong
+    static String getTypeSuffix(String primitiveType) {
+        return Character.toUpperCase(primitiveType.charAt(0)) + primitiveType.substring(1);
+    }
+}
@@ -4,10 +4,21 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
 import javax.tools.Diagnostic;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 /**
@@ -16,23 +27,395 @@ import java.util.stream.Collectors;
  */
 public class Validator {
 
+    /**
+     * Kind of the accessor detected from the method name.
+     */
+    public enum AccessorKind {
+        GETTER, SETTER, NONE
+    }
+
+    // Reference types encoded by the generated codec and row reader (enums are supported as well)
+    private static final Set<String> SCALARS = new HashSet<>(Arrays.asList(
+            "java.lang.String", "java.lang.Boolean", "java.lang.Byte", "java.lang.Short", "java.lang.Character",
+            "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double"));
+
     private final ProcessingEnvironment processingEnv;
 
     public Validator(ProcessingEnvironment processingEnv) {
         this.processingEnv = processingEnv;
     }
 
+    /**
+     * Runs checks required by construction strategy of the model:
+     * <ul>
+     *     <li>SETTERS - no argument constructor and POJO checks</li>
+     *     <li>CONSTRUCTOR - constructor matching properties (records and annotated constructors included),
+     *     getters of all properties if Equality, Codec, Properties or Columns class is generated</li>
+     *     <li>FIELDS - no argument constructor and accessible fields</li>
+     * </ul>
+     * Value models (@ValuePattern) are checked by {@link #checkIfElementIsValueType(PropertyModel)},
+     * flyweight models (@FlyweightPattern) by {@link #checkIfElementIsFlyweight(PropertyModel)},
+     * columns models (@ColumnsPattern) by {@link #checkIfElementHasColumns(PropertyModel)} in addition.
+     * @param model PropertyModel
+     * @return boolean true if builder can be generated
+     */
+    public boolean validate(PropertyModel model) {
+        return validate(model, null);
+    }
+
+    /**
+     * Runs the same checks as {@link #validate(PropertyModel)} and records duration of every check.
+     * @param model PropertyModel
+     * @param metrics TypeMetrics of the model type or null
+     * @return boolean true if builder can be generated
+     */
+    public boolean validate(PropertyModel model, ProcessingStatistics.TypeMetrics metrics) {
+        boolean valid = validateConstruction(model, metrics);
+        if (!model.getCollections().isEmpty()) {
+            valid &= check(metrics, "checkForCollectionTypeArguments", () -> checkForCollectionTypeArguments(model));
+        }
+        if (model.isFlyweight()) {
+            valid &= check(metrics, "checkIfElementIsFlyweight", () -> checkIfElementIsFlyweight(model));
+        }
+        if (model.isColumns()) {
+            valid &= check(metrics, "checkIfElementHasColumns", () -> checkIfElementHasColumns(model));
+        }
+        if (model.isCodec()) {
+            valid &= check(metrics, "checkForCodecProperties", () -> checkForCodecProperties(model));
+        }
+        if (model.isRowReader()) {
+            valid &= check(metrics, "checkForRowReaderProperties", () -> checkForRowReaderProperties(model));
+        }
+        if (model.isPropertyTable()) {
+            valid &= check(metrics, "checkForPropertyTableNames", () -> checkForPropertyTableNames(model));
+        }
+        return valid;
+    }
+
+    private boolean validateConstruction(PropertyModel model, ProcessingStatistics.TypeMetrics metrics) {
+        if (model.isValue()) {
+            return check(metrics, "checkIfElementIsValueType", () -> checkIfElementIsValueType(model));
+        }
+        switch (model.getStrategy()) {
+            case CONSTRUCTOR:
+                return check(metrics, "checkForPropertiesConstructor", () -> checkForPropertiesConstructor(model))
+                        & (!model.isEquality() && !model.isCodec() && !model.isPropertyTable() && !model.isColumns()
+                        || check(metrics, "checkForReadableProperties", () -> checkForReadableProperties(model)));
+            case FIELDS:
+                return check(metrics, "checkForNoArgumentConstructor",
+                        () -> checkForNoArgumentConstructor(model.getType()))
+                        & check(metrics, "checkForAccessibleFields", () -> checkForAccessibleFields(model));
+            default:
+                return check(metrics, "checkForNoArgumentConstructor",
+                        () -> checkForNoArgumentConstructor(model.getType()))
+                        & check(metrics, "checkIfElementIsPOJO", () -> checkIfElementIsPOJO(model));
+        }
+    }
+
+    private static boolean check(ProcessingStatistics.TypeMetrics metrics, String name, BooleanSupplier check) {
+        if (metrics == null) {
+            return check.getAsBoolean();
+        }
+        long start = System.nanoTime();
+        boolean result = check.getAsBoolean();
+        metrics.addCheckNanos(name, System.nanoTime() - start);
+        return result;
+    }
+
     /**
      * Checks if checked element has No Argument Constructor
      * @param type TypeElement
+     * @return boolean
      */
-    public void checkForNoArgumentConstructor(TypeElement type) {
+    public boolean checkForNoArgumentConstructor(TypeElement type) {
         for (ExecutableElement constructor: ElementFilter.constructorsIn(type.getEnclosedElements())) {
-            if (constructor.getParameters().isEmpty()) return;
+            if (constructor.getParameters().isEmpty()) return true;
         }
 
         processingEnv.getMessager().printMessage(
                 Diagnostic.Kind.ERROR, "Missing no argument constructor", type);
+        return false;
+    }
+
+    /**
+     * Checks if element has constructor which parameters match all properties by name and type.
+     * @param model PropertyModel
+     * @return boolean
+     */
+    public boolean checkForPropertiesConstructor(PropertyModel model) {
+        if (model.getConstructorProperties() != null) {
+            return true;
+        }
+        processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR,
+                "Missing constructor with parameters matching properties " +
+                        model.getProperties().keySet().stream()
+                                .map(this::getFieldName)
+                                .collect(Collectors.joining(", ", "(", ")")),
+                model.getType());
+        return false;
+    }
+
+    /**
+     * Checks if the type has properties and all of them are primitives,
+     * so they can be stored in the fixed layout of the flyweight.
+     * @param model PropertyModel
+     * @return boolean
+     */
+    public boolean checkIfElementIsFlyweight(PropertyModel model) {
+        List<String> notPrimitive = model.getProperties().keySet().stream()
+                .filter(name -> !model.getPrimitives().containsKey(name))
+                .map(this::getFieldName)
+                .collect(Collectors.toList());
+        if (!notPrimitive.isEmpty()) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR,
+                    "Flyweight " + model.getType() + " should have primitive properties only, not primitive: "
+                            + String.join(", ", notPrimitive),
+                    model.getType());
+            return false;
+        }
+        if (model.getPrimitives().isEmpty()) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR,
+                    "Flyweight " + model.getType() + " has no properties.",
+                    model.getType());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if every List/Set property declares its item type (raw collections are not supported,
+     * builder adders need the item type).
+     * @param model PropertyModel
+     * @return boolean
+     */
+    public boolean checkForCollectionTypeArguments(PropertyModel model) {
+        boolean valid = true;
+        for (Map.Entry<String, String> collection: model.getCollections().entrySet()) {
+            TypeMirror type = model.getPropertyType(collection.getKey());
+            if (type.getKind() != TypeKind.DECLARED || ((DeclaredType) type).getTypeArguments().isEmpty()) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "Collection property " + getFieldName(collection.getKey()) + " of " + model.getType()
+                                + " should have a type argument (raw " + collection.getValue() + ")",
+                        model.getType());
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Checks if structure of arrays (@ColumnsPattern) has at least one column.
+     * @param model PropertyModel
+     * @return boolean
+     */
+    public boolean checkIfElementHasColumns(PropertyModel model) {
+        if (model.getProperties().isEmpty()) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR,
+                    "Columns " + model.getType() + " has no properties.",
+                    model.getType());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if every property can be encoded by generated codec: primitives, primitive arrays,
+     * boxed primitives, Strings, enums and Lists/Sets of boxed primitives, Strings or enums.
+     * @param model PropertyModel
+     * @return boolean
+     */
+    public boolean checkForCodecProperties(PropertyModel model) {
+        boolean valid = true;
+        for (Map.Entry<String, String> property: model.getProperties().entrySet()) {
+            String name = property.getKey();
+            TypeMirror type = model.getPropertyType(name);
+            boolean supported;
+            if (model.getPrimitives().containsKey(name) || model.getPrimitiveArrays().containsKey(name)) {
+                supported = true;
+            } else if (model.getCollections().containsKey(name)) {
+                List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+                supported = arguments.size() == 1 && isScalar(arguments.get(0));
+            } else {
+                supported = isScalar(type);
+            }
+            if (!supported) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "Codec cannot encode property " + getFieldName(name) + " of type " + property.getValue(),
+                        model.getType());
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Checks if every property can be read from a column by generated row reader:
+     * primitives, boxed primitives, Strings and enums.
+     * @param model PropertyModel
+     * @return boolean
+     */
+    public boolean checkForRowReaderProperties(PropertyModel model) {
+        boolean valid = true;
+        for (Map.Entry<String, String> property: model.getProperties().entrySet()) {
+            String name = property.getKey();
+            if (!model.getPrimitives().containsKey(name) && !isScalar(model.getPropertyType(name))) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "Row reader cannot read property " + getFieldName(name) + " of type " + property.getValue(),
+                        model.getType());
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Checks if property id constants of generated Properties class do not clash with its NAMES list.
+     * @param model PropertyModel
+     * @return boolean
+     */
+    public boolean checkForPropertyTableNames(PropertyModel model) {
+        for (String name: model.getProperties().keySet()) {
+            if (getFieldName(name).equals("names")) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "Property names of " + model.getType() + " clashes with NAMES list of the Properties class.",
+                        model.getType());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isScalar(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        if (PropertyModel.isEnum(type)) {
+            return true;
+        }
+        String name = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        return SCALARS.contains(name);
+    }
+
+    /**
+     * Checks if every parameter of the annotated constructor can be read by a getter.
+     * @param model PropertyModel
+     * @return boolean
+     */
+    public boolean checkForReadableProperties(PropertyModel model) {
+        if (model.getUnreadableProperties().isEmpty()) {
+            return true;
+        }
+        processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR,
+                "Missing getters of constructor parameters " +
+                        model.getUnreadableProperties().stream().collect(Collectors.joining(", ", "(", ")")),
+                model.getConstructor() != null ? model.getConstructor() : model.getType());
+        return false;
+    }
+
+    /**
+     * Checks if every property has a field that builder can assign directly:
+     * not private, not final, not static, declared in the package of the element
+     * unless it is public, and the property type is assignable to the field type.
+     * @param model PropertyModel
+     * @return boolean
+     */
+    public boolean checkForAccessibleFields(PropertyModel model) {
+        boolean valid = true;
+        String packageName = processingEnv.getElementUtils()
+                .getPackageOf(model.getType()).getQualifiedName().toString();
+        for (Map.Entry<String, String> property: model.getProperties().entrySet()) {
+            String fieldName = getFieldName(property.getKey());
+            VariableElement field = model.getField(fieldName);
+            if (field == null) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR, "Missing field " + fieldName, model.getType());
+                valid = false;
+                continue;
+            }
+            String fieldPackage = processingEnv.getElementUtils()
+                    .getPackageOf(field).getQualifiedName().toString();
+            boolean visible = field.getModifiers().contains(Modifier.PUBLIC)
+                    || fieldPackage.equals(packageName);
+            if (!visible
+                    || field.getModifiers().contains(Modifier.PRIVATE)
+                    || field.getModifiers().contains(Modifier.FINAL)
+                    || field.getModifiers().contains(Modifier.STATIC)) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "Field " + fieldName + " cannot be assigned by builder (it should be " +
+                                "declared in package " + packageName + " or public and " +
+                                "it should not be private, final or static)", field);
+                valid = false;
+                continue;
+            }
+            TypeMirror propertyType = model.getPropertyType(property.getKey());
+            TypeMirror fieldType = processingEnv.getTypeUtils()
+                    .asMemberOf((DeclaredType) model.getType().asType(), field);
+            if (!processingEnv.getTypeUtils().isAssignable(propertyType, fieldType)) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "Field " + fieldName + " of type " + fieldType + " cannot be assigned property " +
+                                fieldName + " of type " + propertyType, field);
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Checks if element can be implemented by generated value class:
+     * it should be an interface or an abstract class with no argument constructor
+     * and all its abstract methods should be getters of the properties.
+     * @param model PropertyModel of the element
+     * @return boolean
+     */
+    public boolean checkIfElementIsValueType(PropertyModel model) {
+        TypeElement type = model.getType();
+        boolean valid;
+        if (type.getKind() == ElementKind.INTERFACE) {
+            valid = true;
+        } else if (type.getKind() == ElementKind.CLASS && type.getModifiers().contains(Modifier.ABSTRACT)) {
+            valid = checkForNoArgumentConstructor(type);
+        } else {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR,
+                    "Class " + type.toString() + " should be an interface or an abstract class.", type);
+            return false;
+        }
+        for (ExecutableElement method: model.getAbstractMethods()) {
+            String name = method.getSimpleName().toString();
+            if (isImplementedByValueClass(method)) {
+                continue;
+            }
+            if (!method.getParameters().isEmpty() || !model.getProperties().containsKey(name)) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "Abstract method " + name + " cannot be implemented by value class " +
+                                "(only getters of not ignored properties are supported)", method);
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    // equals(Object), hashCode() and toString() are generated for every value class
+    private boolean isImplementedByValueClass(ExecutableElement method) {
+        String name = method.getSimpleName().toString();
+        List<? extends VariableElement> parameters = method.getParameters();
+        if (parameters.isEmpty()) {
+            return name.equals("hashCode") || name.equals("toString");
+        }
+        return name.equals("equals") && parameters.size() == 1
+                && parameters.get(0).asType().toString().equals("java.lang.Object");
     }
 
     /**
@@ -43,64 +426,120 @@ public class Validator {
      * @return boolean
      */
     public boolean getterOrSetterTypePredicate(String name, String type) {
-        return name.startsWith(type) &&
-                name.substring(type.length(), type.length() + 1)
-                        .matches("[A-Z]");
+        return hasAccessorPrefix(name, type);
+    }
+
+    /**
+     * Classifies method name: "get", "has" and "is" followed by upper case letter are getters,
+     * "set" followed by upper case letter is setter.
+     * @param name String method name
+     * @return AccessorKind
+     */
+    public static AccessorKind classifyAccessor(String name) {
+        int prefixLength = getAccessorPrefixLength(name);
+        if (prefixLength == 0) {
+            return AccessorKind.NONE;
+        }
+        return name.charAt(0) == 's' ? AccessorKind.SETTER : AccessorKind.GETTER;
+    }
+
+    /**
+     * Length of the accessor prefix ("get", "has", "is" or "set"), 0 if the name is not an accessor name.
+     * Only the first characters of the name are inspected.
+     * @param name String method name
+     * @return int
+     */
+    public static int getAccessorPrefixLength(String name) {
+        if (name.length() < 3) {
+            return 0;
+        }
+        switch (name.charAt(0)) {
+            case 'g':
+                return hasAccessorPrefix(name, "get") ? 3 : 0;
+            case 'h':
+                return hasAccessorPrefix(name, "has") ? 3 : 0;
+            case 's':
+                return hasAccessorPrefix(name, "set") ? 3 : 0;
+            case 'i':
+                return hasAccessorPrefix(name, "is") ? 2 : 0;
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean hasAccessorPrefix(String name, String prefix) {
+        if (name.length() <= prefix.length() || !name.startsWith(prefix)) {
+            return false;
+        }
+        char first = name.charAt(prefix.length());
+        return first >= 'A' && first <= 'Z';
     }
 
     /**
      * Checks if element has getters and equal amount of setters for the same parameters.
-     * @param element Element
-     */
-    public void checkIfElementIsPOJO(Element element) {
-        String elementName = element.asType().toString();
-        TypeElement elementType = processingEnv.getElementUtils().getTypeElement(elementName);
-
-        Set<? extends Element> setters =
-                processingEnv.getElementUtils().getAllMembers(elementType)
-                .stream()
-                .filter(elem -> elem.getKind() == ElementKind.METHOD &&
-                        getterOrSetterTypePredicate(elem.getSimpleName().toString(), "set"))
-                .collect(Collectors.toSet());
-
-        Set<? extends Element> getters =
-                processingEnv.getElementUtils().getAllMembers(elementType)
-                .stream()
-                .filter(elem -> elem.getKind() == ElementKind.METHOD &&
-                        (getterOrSetterTypePredicate(elem.getSimpleName().toString(), "get")
-                        || getterOrSetterTypePredicate(elem.getSimpleName().toString(), "has")
-                        || getterOrSetterTypePredicate(elem.getSimpleName().toString(), "is")) &&
-                        !elem.getSimpleName().toString().startsWith("getClass"))
-                .collect(Collectors.toSet());
-
-        checkIfPOJO(setters, getters, element);
-    }
-
-    private void checkIfPOJO(Set<? extends Element> setters,
-                             Set<? extends Element> getters,
+     * @param model PropertyModel of the element
+     * @return boolean
+     */
+    public boolean checkIfElementIsPOJO(PropertyModel model) {
+        return checkIfPOJO(model.getSetters(), model.getGetters(), model.getType());
+    }
+
+    // Counts getters having exactly one single parameter setter: setters are indexed
+    // by property name first, so every getter is paired with one lookup
+    private boolean checkIfPOJO(List<? extends ExecutableElement> setters,
+                             List<? extends ExecutableElement> getters,
                              Element element) {
 
-        long samples = getters.stream()
-                .filter(getter -> setters.stream().filter(setter ->
-                        setter.getSimpleName().toString().substring(3)
-                                .equals(getSubstring(getter.getSimpleName().toString())) &&
-                                ((ExecutableElement) setter).getParameters().size() == 1
-                    ).count() == 1)
-                .count();
+        Map<String, Integer> setterCounts = new HashMap<>();
+        for (ExecutableElement setter: setters) {
+            if (setter.getParameters().size() == 1) {
+                setterCounts.merge(getSubstring(setter.getSimpleName().toString()), 1, Integer::sum);
+            }
+        }
+        long samples = 0;
+        for (ExecutableElement getter: getters) {
+            Integer count = setterCounts.get(getSubstring(getter.getSimpleName().toString()));
+            if (count != null && count == 1) {
+                samples++;
+            }
+        }
 
         if (samples != getters.size() && samples != setters.size()) {
             processingEnv.getMessager().printMessage(
                     Diagnostic.Kind.ERROR,
                     "Class " + element.toString() + " is not POJO.");
+            return false;
         }
+        return true;
     }
 
+    /**
+     * Field (property) name of the accessor, ex., getName - name, isActive - active.
+     * @param accessorName String
+     * @return String
+     */
+    public String getFieldName(String accessorName) {
+        int prefixLength = getAccessorPrefixLength(accessorName);
+        if (prefixLength == 0) {
+            return accessorName;
+        }
+        char[] fieldName = new char[accessorName.length() - prefixLength];
+        accessorName.getChars(prefixLength, accessorName.length(), fieldName, 0);
+        fieldName[0] = (char) (fieldName[0] + ('a' - 'A'));
+        return new String(fieldName);
+    }
+
+    /**
+     * Accessor name without prefix, ex., getName, setName - Name.
+     * Other names (record components, constructor parameters) are capitalized, ex., name - Name.
+     * @param name String
+     * @return String
+     */
     public String getSubstring(String name) {
-        if (getterOrSetterTypePredicate(name, "get")
-                || getterOrSetterTypePredicate(name, "has"))
-            return name.substring(3);
-        if (getterOrSetterTypePredicate(name, "is"))
-            return name.substring(2);
-        return name;
+        int prefixLength = getAccessorPrefixLength(name);
+        if (prefixLength == 0) {
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+        return name.substring(prefixLength);
     }
 }
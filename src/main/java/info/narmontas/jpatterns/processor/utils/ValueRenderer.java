@@ -0,0 +1,107 @@
+package info.narmontas.jpatterns.processor.utils;
+
+import java.util.Map;
+
+/**
+ * <p>ValueRenderer class renders value class (type annotated with @ValuePattern): final fields assigned
+ * by the constructor, getters, equals, hashCode (computed once if cached) and toString.</p>
+ */
+final class ValueRenderer extends SourceRenderer {
+    static final String SUFFIX = "Value";
+
+    private final ObjectMethods objectMethods;
+
+    ValueRenderer(SourceModel model) {
+        super(model, SUFFIX);
+        this.objectMethods = new ObjectMethods(model);
+    }
+
+    @Override
+    public void render(CodeGenerator value) {
+        Map<String, String> properties = model.getProperties();
+        value.definePackage(model.getPackageName());
+        value.defineFinalClass(Encapsulation.PUBLIC, className, typeFullName, model.isInterface());
+        properties.forEach((name, type) -> value.addFinalField(Encapsulation.PRIVATE, type, model.getFieldName(name)));
+        if (model.isHashCodeCached()) {
+            value.addField(Encapsulation.PRIVATE, "int", "cachedHashCode");
+        }
+
+        Method constructor = new Method(className)
+                .setConstructor()
+                .setEncapsulation(Encapsulation.PUBLIC);
+        properties.forEach((name, type) -> {
+            constructor.addParameter(type, model.getFieldName(name))
+                    .addBodyLine("this." + model.getFieldName(name) + " = " + getCopyExpression(name, type) + ";");
+        });
+        value.addMethod(constructor);
+
+        properties.forEach((name, type) -> {
+            String field = "this." + model.getFieldName(name);
+            value.addMethod(new Method(name)
+                    .addAnnotation("java.lang.Override")
+                    .setEncapsulation(Encapsulation.PUBLIC)
+                    .setReturnType(type)
+                    .addBodyLine("return " + (type.endsWith("[]")
+                            ? field + " == null ? null : " + field + ".clone()"
+                            : field) + ";"));
+        });
+
+        Method equals = new Method("equals")
+                .addAnnotation("java.lang.Override")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType("boolean")
+                .addParameter("java.lang.Object", "obj")
+                .addBodyLineAndOpenBlock("if (this == obj)")
+                .addBodyLine("return true;")
+                .closeBlock()
+                .addBodyLineAndOpenBlock("if (!(obj instanceof " + classFullName + "))")
+                .addBodyLine("return false;")
+                .closeBlock()
+                .addBodyLine(classFullName + " other = (" + classFullName + ") obj;")
+                .addBodyLine("return " + objectMethods.getEqualsExpression(
+                        model::getFieldName, name -> "other." + model.getFieldName(name)) + ";");
+        value.addMethod(equals);
+
+        Method hashCode = new Method("hashCode")
+                .addAnnotation("java.lang.Override")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType("int");
+        // Fields are never changed (collections and arrays are copied by the constructor), so hash can be cached
+        if (model.isHashCodeCached()) {
+            hashCode.addBodyLine("int result = cachedHashCode;")
+                    .addBodyLineAndOpenBlock("if (result == 0)")
+                    .addBodyLine("result = 1;");
+            objectMethods.addHashCodeLines(hashCode, model::getFieldName);
+            hashCode.addBodyLine("cachedHashCode = result;")
+                    .closeBlock();
+        } else {
+            hashCode.addBodyLine("int result = 1;");
+            objectMethods.addHashCodeLines(hashCode, model::getFieldName);
+        }
+        value.addMethod(hashCode.addBodyLine("return result;"));
+
+        value.addMethod(new Method("toString")
+                .addAnnotation("java.lang.Override")
+                .setEncapsulation(Encapsulation.PUBLIC)
+                .setReturnType(stringType)
+                .addBodyLine("return " + objectMethods.getToStringExpression(model::getFieldName) + ";"));
+        value.build();
+    }
+
+    // Value class owns its collections and arrays (builder may be changed and built again):
+    // collections are copied to unmodifiable ones, arrays are cloned (getters return clones as well)
+    private String getCopyExpression(String name, String type) {
+        String parameter = model.getFieldName(name);
+        String copy;
+        if (model.isCollection(name)) {
+            copy = type.startsWith(listType)
+                    ? "java.util.Collections.unmodifiableList(new java.util.ArrayList<>(" + parameter + "))"
+                    : "java.util.Collections.unmodifiableSet(new java.util.LinkedHashSet<>(" + parameter + "))";
+        } else if (type.endsWith("[]")) {
+            copy = parameter + ".clone()";
+        } else {
+            return parameter;
+        }
+        return parameter + " == null ? null : " + copy;
+    }
+}
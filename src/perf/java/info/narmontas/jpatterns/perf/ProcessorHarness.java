@@ -0,0 +1,245 @@
+package info.narmontas.jpatterns.perf;
+
+import info.narmontas.jpatterns.processor.BuilderPatternProcessor;
+import info.narmontas.jpatterns.processor.utils.ProcessingStatistics;
+import info.narmontas.jpatterns.processor.utils.ProcessingStatistics.Phase;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Compile time benchmark of BuilderPatternProcessor.</p>
+ * <p>Synthetic corpora of @BuilderPattern POJOs are compiled in-process with
+ * javax.tools.JavaCompiler. For every corpus compilation wall time, process() time
+ * and allocation of every round and time and allocation of the processing phases
+ * (Validator, PropertyModel, CodeGenerator, Filer) are reported.</p>
+ * <p>Arguments (all optional, key=value):</p>
+ * <ul>
+ *     <li>sizes=100,1000,10000 - number of annotated classes in corpora</li>
+ *     <li>properties=4-24 - range of declared properties per class</li>
+ *     <li>depth=3 - number of parent classes of every second POJO</li>
+ *     <li>runs=3 - compilations per corpus, the first one is a warm-up</li>
+ *     <li>parallelism=1 - rendering threads of the processor (-Ajpatterns.parallelism),
+ *     1 renders on the compiler thread, so CodeGenerator time is not mixed with waiting
+ *     for pool threads</li>
+ * </ul>
+ * <p>Run with: ./gradlew processorBenchmark -PharnessArgs="sizes=100,1000 runs=5"</p>
+ */
+public class ProcessorHarness {
+
+    private static final String PACKAGE = "corpus";
+    private static final String[] TYPES = {
+            "long", "java.lang.String", "int", "java.util.List<java.lang.String>",
+            "double", "java.lang.Long", "boolean", "java.util.Set<java.lang.Integer>"
+    };
+
+    private final int minProperties;
+    private final int maxProperties;
+    private final int depth;
+    private final int runs;
+    private final int parallelism;
+
+    private ProcessorHarness(int minProperties, int maxProperties, int depth, int runs, int parallelism) {
+        this.minProperties = minProperties;
+        this.maxProperties = maxProperties;
+        this.depth = depth;
+        this.runs = runs;
+        this.parallelism = parallelism;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> arguments = new LinkedHashMap<>();
+        arguments.put("sizes", "100,1000,10000");
+        arguments.put("properties", "4-24");
+        arguments.put("depth", "3");
+        arguments.put("runs", "3");
+        arguments.put("parallelism", "1");
+        for (String arg: args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !arguments.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            arguments.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        String[] properties = arguments.get("properties").split("-");
+        ProcessorHarness harness = new ProcessorHarness(
+                Integer.parseInt(properties[0]),
+                Integer.parseInt(properties[properties.length - 1]),
+                Integer.parseInt(arguments.get("depth")),
+                Math.max(1, Integer.parseInt(arguments.get("runs"))),
+                Integer.parseInt(arguments.get("parallelism")));
+
+        System.out.println("JPatterns processor benchmark " + arguments);
+        for (String size: arguments.get("sizes").split(",")) {
+            harness.run(Integer.parseInt(size.trim()));
+        }
+    }
+
+    private void run(int size) throws IOException {
+        Path workDir = Files.createTempDirectory("jpatterns-perf");
+        try {
+            List<Path> sources = writeCorpus(workDir.resolve("src"), size);
+            for (int run = 0; run < runs; run++) {
+                Path output = workDir.resolve("run" + run);
+                ProcessingStatistics statistics = new ProcessingStatistics();
+                long[] compilation = compile(sources, output, statistics);
+                if (run > 0 || runs == 1) {
+                    report(size, run, compilation, statistics);
+                }
+                delete(output);
+            }
+        } finally {
+            delete(workDir);
+        }
+    }
+
+    // Generators
+
+    private List<Path> writeCorpus(Path sourceDir, int size) throws IOException {
+        Path packageDir = Files.createDirectories(sourceDir.resolve(PACKAGE));
+        List<Path> files = new ArrayList<>();
+        for (int level = 0; level < depth; level++) {
+            String parent = level == 0 ? null : "Base" + (level - 1);
+            files.add(writeClass(packageDir, "Base" + level, parent, 2, "base" + level, false));
+        }
+        int range = Math.max(1, maxProperties - minProperties + 1);
+        for (int i = 0; i < size; i++) {
+            String parent = depth > 0 && i % 2 == 0 ? "Base" + (depth - 1) : null;
+            int properties = minProperties + i % range;
+            files.add(writeClass(packageDir, "Pojo" + i, parent, properties, "property", true));
+        }
+        return files;
+    }
+
+    private Path writeClass(Path packageDir, String name, String parent,
+                            int properties, String prefix, boolean annotated) throws IOException {
+        StringBuilder source = new StringBuilder("package " + PACKAGE + ";\n\n");
+        if (annotated) {
+            source.append("@info.narmontas.jpatterns.annotation.BuilderPattern\n");
+        }
+        source.append("public class ").append(name);
+        if (parent != null) {
+            source.append(" extends ").append(parent);
+        }
+        source.append(" {\n");
+        for (int i = 0; i < properties; i++) {
+            String type = TYPES[i % TYPES.length];
+            String field = prefix + i;
+            String accessor = Character.toUpperCase(field.charAt(0)) + field.substring(1);
+            source.append("    private ").append(type).append(' ').append(field).append(";\n")
+                    .append("    public ").append(type).append(" get").append(accessor)
+                    .append("() { return ").append(field).append("; }\n")
+                    .append("    public void set").append(accessor).append('(').append(type)
+                    .append(" value) { this.").append(field).append(" = value; }\n");
+        }
+        source.append("}\n");
+        Path file = packageDir.resolve(name + ".java");
+        Files.write(file, source.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    // Compilation
+
+    // returns {wall time nanos, allocated bytes of compiling thread}
+    private long[] compile(List<Path> sources, Path output, ProcessingStatistics statistics) throws IOException {
+        Path classes = Files.createDirectories(output.resolve("classes"));
+        Path generated = Files.createDirectories(output.resolve("generated"));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler is not available, run the harness on a JDK.");
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        BuilderPatternProcessor processor = new BuilderPatternProcessor();
+        processor.setStatistics(statistics);
+
+        try (StandardJavaFileManager fileManager =
+                     compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = new ArrayList<>(Arrays.asList(
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-d", classes.toString(),
+                    "-s", generated.toString()));
+            options.add("-A" + BuilderPatternProcessor.PARALLELISM_OPTION + "=" + Math.max(1, parallelism));
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(
+                    sources.stream().map(Path::toFile).collect(Collectors.toList()));
+            JavaCompiler.CompilationTask task =
+                    compiler.getTask(null, fileManager, diagnostics, options, null, units);
+            task.setProcessors(Arrays.asList(processor));
+
+            long startBytes = allocatedBytes();
+            long start = System.nanoTime();
+            boolean success = task.call();
+            long wall = System.nanoTime() - start;
+            long allocated = allocatedBytes() - startBytes;
+
+            if (!success) {
+                for (Diagnostic<? extends JavaFileObject> diagnostic: diagnostics.getDiagnostics()) {
+                    System.err.println(diagnostic);
+                }
+                throw new IllegalStateException("Corpus compilation failed.");
+            }
+            return new long[]{wall, allocated};
+        }
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    // Report
+
+    private void report(int size, int run, long[] compilation, ProcessingStatistics statistics) {
+        System.out.println();
+        System.out.printf("corpus %d classes, run %d: javac wall %.1f ms, javac allocated %.1f MB%n",
+                size, run, millis(compilation[0]), megabytes(compilation[1]));
+        List<ProcessingStatistics.Round> rounds = statistics.getRounds();
+        for (int i = 0; i < rounds.size(); i++) {
+            ProcessingStatistics.Round round = rounds.get(i);
+            System.out.printf("  round %d: process() %.1f ms, allocated %.1f MB, %d annotated types%n",
+                    i + 1, millis(round.getNanos()), megabytes(round.getAllocatedBytes()), round.getTypes());
+        }
+        for (Phase phase: Phase.values()) {
+            System.out.printf("  %-10s %10.1f ms %10.1f MB%n", phase,
+                    millis(statistics.getPhaseNanos(phase)),
+                    megabytes(statistics.getPhaseAllocatedBytes(phase)));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static double megabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
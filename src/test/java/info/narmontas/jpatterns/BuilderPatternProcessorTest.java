@@ -0,0 +1,1354 @@
+package info.narmontas.jpatterns;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.lang.model.SourceVersion;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BuilderPatternProcessorTest {
+
+    @TempDir
+    Path workDir;
+
+    private Compilation personCompilation() {
+        return personCompilationInto(new Compilation(workDir));
+    }
+
+    private Compilation personCompilationInto(Compilation compilation) {
+        return compilation
+                .addSource("org.test.Entity",
+                        "package org.test;",
+                        "public class Entity {",
+                        "    private long id;",
+                        "    public long getId() { return id; }",
+                        "    public void setId(long id) { this.id = id; }",
+                        "}")
+                .addSource("org.test.Person",
+                        "package org.test;",
+                        "import info.narmontas.jpatterns.annotation.BuilderPattern;",
+                        "import info.narmontas.jpatterns.annotation.BuilderPatternIgnore;",
+                        "import java.util.List;",
+                        "@BuilderPattern",
+                        "public class Person extends Entity {",
+                        "    private String name;",
+                        "    private boolean active;",
+                        "    private List<String> nickNames;",
+                        "    private int version;",
+                        "    public String getName() { return name; }",
+                        "    public void setName(String name) { this.name = name; }",
+                        "    public boolean isActive() { return active; }",
+                        "    public void setActive(boolean active) { this.active = active; }",
+                        "    public List<String> getNickNames() { return nickNames; }",
+                        "    public void setNickNames(List<String> nickNames) { this.nickNames = nickNames; }",
+                        "    @BuilderPatternIgnore",
+                        "    public int getVersion() { return version; }",
+                        "    public void setVersion(int version) { this.version = version; }",
+                        "}");
+    }
+
+    @Test
+    public void testBuilderWithInheritedProperties() throws Exception {
+        Compilation compilation = personCompilation().compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> builderClass = compilation.loadClass("org.test.PersonBuilder");
+        Object builder = compilation.invoke(builderClass, "create");
+        compilation.invoke(builder, "setId", 7L);
+        compilation.invoke(builder, "setName", "John");
+        compilation.invoke(builder, "setActive", true);
+        compilation.invoke(builder, "addNickNames", "johnny");
+        Object person = compilation.invoke(builder, "build");
+
+        assertEquals(7L, compilation.invoke(person, "getId"));
+        assertEquals("John", compilation.invoke(person, "getName"));
+        assertEquals(true, compilation.invoke(person, "isActive"));
+        assertEquals(Arrays.asList("johnny"), compilation.invoke(person, "getNickNames"));
+    }
+
+    @Test
+    public void testSharedParentAndPropertyOrder() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.BaseEntity",
+                        "package org.test;",
+                        "public abstract class BaseEntity {",
+                        "    private long version;",
+                        "    private String key;",
+                        "    public long getVersion() { return version; }",
+                        "    public void setVersion(long version) { this.version = version; }",
+                        "    public String getKey() { return key; }",
+                        "    public void setKey(String key) { this.key = key; }",
+                        "}")
+                .addSource("org.test.Order",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "public class Order extends BaseEntity {",
+                        "    private long total;",
+                        "    public long getTotal() { return total; }",
+                        "    public void setTotal(long total) { this.total = total; }",
+                        "    @Override",
+                        "    public void setKey(String key) { super.setKey(key.toUpperCase()); }",
+                        "}")
+                .addSource("org.test.Invoice",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "public class Invoice extends BaseEntity {",
+                        "    private String number;",
+                        "    public String getNumber() { return number; }",
+                        "    public void setNumber(String number) { this.number = number; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        String source = compilation.getGeneratedSource("org.test.OrderBuilder");
+        assertTrue(source.indexOf("private long version;") < source.indexOf("private long total;"), source);
+
+        Object builder = compilation.invoke(compilation.loadClass("org.test.OrderBuilder"), "create");
+        compilation.invoke(builder, "setKey", "a-1");
+        compilation.invoke(builder, "setTotal", 5L);
+        Object order = compilation.invoke(builder, "build");
+        assertEquals("A-1", compilation.invoke(order, "getKey"));
+        assertEquals(5L, compilation.invoke(order, "getTotal"));
+
+        builder = compilation.invoke(compilation.loadClass("org.test.InvoiceBuilder"), "create");
+        compilation.invoke(builder, "setKey", "b-2");
+        compilation.invoke(builder, "setNumber", "7");
+        Object invoice = compilation.invoke(builder, "build");
+        assertEquals("b-2", compilation.invoke(invoice, "getKey"));
+        assertEquals("7", compilation.invoke(invoice, "getNumber"));
+    }
+
+    @Test
+    public void testShortMethodNamesAreNotAccessors() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Slot",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "public class Slot {",
+                        "    private String value;",
+                        "    public String get() { return value; }",
+                        "    public boolean is() { return value != null; }",
+                        "    public void set(String value) { this.value = value; }",
+                        "    public String getter() { return value; }",
+                        "    public String getValue() { return value; }",
+                        "    public void setValue(String value) { this.value = value; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        Object builder = compilation.invoke(compilation.loadClass("org.test.SlotBuilder"), "create");
+        compilation.invoke(builder, "setValue", "x");
+        assertEquals("x", compilation.invoke(compilation.invoke(builder, "build"), "get"));
+    }
+
+    @Test
+    public void testIgnoredGetterIsNotInBuilder() throws Exception {
+        Compilation compilation = personCompilation().compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        assertFalse(compilation.getGeneratedSource("org.test.PersonBuilder").contains("setVersion"));
+    }
+
+    @Test
+    public void testClassWithUnmatchedAccessorsIsNotPOJO() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Unmatched",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "public class Unmatched {",
+                        "    public String getName() { return null; }",
+                        "    public void setName(String name) { }",
+                        "    public int getAge() { return 0; }",
+                        "    public void setYears(int years) { }",
+                        "}")
+                .compile();
+        assertFalse(compilation.isSuccess());
+        assertTrue(compilation.getErrors().contains("is not POJO"), compilation.getErrors());
+    }
+
+    @Test
+    public void testCachedBuilderIsReused() throws Exception {
+        String cacheOption = "-Ajpatterns.cache.dir=" + workDir.resolve("cache");
+        Compilation first = personCompilation().addOption(cacheOption).compile();
+        assertTrue(first.isSuccess(), first.getErrors());
+        assertTrue(first.getNotes().contains("0 hits, 1 misses"), first.getNotes());
+
+        Compilation second = new Compilation(workDir.resolve("second"));
+        second = personCompilationInto(second).addOption(cacheOption).compile();
+        assertTrue(second.isSuccess(), second.getErrors());
+        assertTrue(second.getNotes().contains("1 hits, 0 misses"), second.getNotes());
+        assertEquals(first.getGeneratedSource("org.test.PersonBuilder"),
+                second.getGeneratedSource("org.test.PersonBuilder"));
+    }
+
+    @Test
+    public void testCachedSourcesWithEnumPropertyAreReused() throws Exception {
+        String cacheOption = "-Ajpatterns.cache.dir=" + workDir.resolve("cache");
+        Compilation first = tradeCompilationInto(new Compilation(workDir.resolve("first")))
+                .addOption(cacheOption).compile();
+        assertTrue(first.isSuccess(), first.getErrors());
+        assertTrue(first.getNotes().contains("0 hits, 3 misses"), first.getNotes());
+
+        Compilation second = tradeCompilationInto(new Compilation(workDir.resolve("second")))
+                .addOption(cacheOption).compile();
+        assertTrue(second.isSuccess(), second.getErrors());
+        assertTrue(second.getNotes().contains("3 hits, 0 misses"), second.getNotes());
+        assertEquals(first.getGeneratedSource("org.test.TradeCodec"),
+                second.getGeneratedSource("org.test.TradeCodec"));
+    }
+
+    private Compilation tradeCompilationInto(Compilation compilation) {
+        return compilation
+                .addSource("org.test.Status",
+                        "package org.test;",
+                        "public enum Status { OPEN, CLOSED }")
+                .addSource("org.test.Trade",
+                        "package org.test;",
+                        "import info.narmontas.jpatterns.annotation.BuilderPattern;",
+                        "@BuilderPattern(codec = true, rowReader = true)",
+                        "public class Trade {",
+                        "    private long id;",
+                        "    private Status status;",
+                        "    public long getId() { return id; }",
+                        "    public void setId(long id) { this.id = id; }",
+                        "    public Status getStatus() { return status; }",
+                        "    public void setStatus(Status status) { this.status = status; }",
+                        "}");
+    }
+
+    @Test
+    public void testConstructorStrategy() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Point",
+                        "package org.test;",
+                        "import info.narmontas.jpatterns.annotation.BuilderPattern;",
+                        "import info.narmontas.jpatterns.annotation.ConstructionStrategy;",
+                        "@BuilderPattern(strategy = ConstructionStrategy.CONSTRUCTOR)",
+                        "public class Point {",
+                        "    private final int x;",
+                        "    private final String label;",
+                        "    public Point(String label, int x) { this.x = x; this.label = label; }",
+                        "    public int getX() { return x; }",
+                        "    public String getLabel() { return label; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        assertTrue(compilation.getGeneratedSource("org.test.PointBuilder")
+                .contains("return new org.test.Point(label, x);"));
+
+        Object builder = compilation.invoke(compilation.loadClass("org.test.PointBuilder"), "create");
+        compilation.invoke(builder, "setX", 5);
+        compilation.invoke(builder, "setLabel", "five");
+        Object point = compilation.invoke(builder, "build");
+        assertEquals(5, compilation.invoke(point, "getX"));
+        assertEquals("five", compilation.invoke(point, "getLabel"));
+    }
+
+    @Test
+    public void testConstructorStrategyWithoutParameterNames() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Point",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(strategy =",
+                        "        info.narmontas.jpatterns.annotation.ConstructionStrategy.CONSTRUCTOR)",
+                        "public class Point {",
+                        "    private final int x;",
+                        "    private final String label;",
+                        "    public Point(String arg0, int arg1) { this.label = arg0; this.x = arg1; }",
+                        "    public int getX() { return x; }",
+                        "    public String getLabel() { return label; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        assertTrue(compilation.getGeneratedSource("org.test.PointBuilder")
+                .contains("return new org.test.Point(label, x);"));
+    }
+
+    @Test
+    public void testConstructorStrategyWithoutMatchingConstructor() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Point",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(strategy =",
+                        "        info.narmontas.jpatterns.annotation.ConstructionStrategy.CONSTRUCTOR)",
+                        "public class Point {",
+                        "    public Point(long x) { }",
+                        "    public int getX() { return 0; }",
+                        "}")
+                .compile();
+        assertFalse(compilation.isSuccess());
+        assertTrue(compilation.getErrors().contains("Missing constructor with parameters matching properties (x)"),
+                compilation.getErrors());
+    }
+
+    @Test
+    public void testFieldsStrategy() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Account",
+                        "package org.test;",
+                        "import info.narmontas.jpatterns.annotation.BuilderPattern;",
+                        "import info.narmontas.jpatterns.annotation.ConstructionStrategy;",
+                        "@BuilderPattern(strategy = ConstructionStrategy.FIELDS)",
+                        "public class Account {",
+                        "    long number;",
+                        "    String owner;",
+                        "    public long getNumber() { return number; }",
+                        "    public String getOwner() { return owner; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        assertTrue(compilation.getGeneratedSource("org.test.AccountBuilder").contains("obj.number = number;"));
+
+        Object builder = compilation.invoke(compilation.loadClass("org.test.AccountBuilder"), "create");
+        compilation.invoke(builder, "setNumber", 12L);
+        compilation.invoke(builder, "setOwner", "Ann");
+        Object account = compilation.invoke(builder, "build");
+        assertEquals(12L, compilation.invoke(account, "getNumber"));
+        assertEquals("Ann", compilation.invoke(account, "getOwner"));
+    }
+
+    @Test
+    public void testFieldsStrategyWithPrivateField() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Account",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(strategy =",
+                        "        info.narmontas.jpatterns.annotation.ConstructionStrategy.FIELDS)",
+                        "public class Account {",
+                        "    private long number;",
+                        "    public long getNumber() { return number; }",
+                        "}")
+                .compile();
+        assertFalse(compilation.isSuccess());
+        assertTrue(compilation.getErrors().contains("Field number cannot be assigned by builder"),
+                compilation.getErrors());
+    }
+
+    @Test
+    public void testFieldsStrategyWithFieldOfOtherType() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Account",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(strategy =",
+                        "        info.narmontas.jpatterns.annotation.ConstructionStrategy.FIELDS)",
+                        "public class Account {",
+                        "    int number;",
+                        "    public long getNumber() { return number; }",
+                        "}")
+                .compile();
+        assertFalse(compilation.isSuccess());
+        assertTrue(compilation.getErrors().contains("Field number of type int cannot be assigned property number "
+                + "of type long"), compilation.getErrors());
+    }
+
+    @Test
+    public void testReusableBuilder() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Tag",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(reusable = true)",
+                        "public class Tag {",
+                        "    private int weight;",
+                        "    private List<String> aliases;",
+                        "    public int getWeight() { return weight; }",
+                        "    public void setWeight(int weight) {",
+                        "        if (weight < 0) throw new IllegalArgumentException();",
+                        "        this.weight = weight;",
+                        "    }",
+                        "    public List<String> getAliases() { return aliases; }",
+                        "    public void setAliases(List<String> aliases) { this.aliases = aliases; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> builderClass = compilation.loadClass("org.test.TagBuilder");
+        Object builder = compilation.invoke(builderClass, "reusable");
+        compilation.invoke(builder, "setWeight", 3);
+        compilation.invoke(builder, "addAliases", "first");
+        Object first = compilation.invoke(builder, "build");
+
+        Object sameBuilder = compilation.invoke(builderClass, "reusable");
+        assertSame(builder, sameBuilder);
+        Object second = compilation.invoke(sameBuilder, "build");
+        assertEquals(0, compilation.invoke(second, "getWeight"));
+        assertNull(compilation.invoke(second, "getAliases"));
+        assertEquals(Arrays.asList("first"), compilation.invoke(first, "getAliases"));
+
+        Object outer = compilation.invoke(builderClass, "reusable");
+        compilation.invoke(outer, "setWeight", 5);
+        Object nested = compilation.invoke(builderClass, "reusable");
+        assertNotSame(outer, nested);
+        compilation.invoke(nested, "setWeight", 7);
+        assertEquals(7, compilation.invoke(compilation.invoke(nested, "build"), "getWeight"));
+        assertEquals(5, compilation.invoke(compilation.invoke(outer, "build"), "getWeight"));
+        assertSame(outer, compilation.invoke(builderClass, "reusable"));
+
+        compilation.invoke(outer, "setWeight", -1);
+        assertThrows(java.lang.reflect.InvocationTargetException.class, () -> compilation.invoke(outer, "build"));
+        assertSame(outer, compilation.invoke(builderClass, "reusable"));
+        compilation.invoke(outer, "reset");
+        assertSame(outer, compilation.invoke(builderClass, "reusable"));
+    }
+
+    @Test
+    public void testCollectionsAreCreatedByFirstAdd() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Order",
+                        "package org.test;",
+                        "import java.util.ArrayList;",
+                        "import java.util.List;",
+                        "import java.util.Set;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "public class Order {",
+                        "    private List<String> lines = new ArrayList<>();",
+                        "    private Set<String> labels;",
+                        "    public List<String> getLines() { return lines; }",
+                        "    public void setLines(List<String> lines) { this.lines = lines; }",
+                        "    public Set<String> getLabels() { return labels; }",
+                        "    public void setLabels(Set<String> labels) { this.labels = labels; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Object builder = compilation.invoke(compilation.loadClass("org.test.OrderBuilder"), "create");
+        compilation.invoke(builder, "addLabels", "urgent");
+        Object order = compilation.invoke(builder, "build");
+        assertEquals(new java.util.HashSet<>(Arrays.asList("urgent")), compilation.invoke(order, "getLabels"));
+        // not used collection is not created by builder, POJO keeps its own default value
+        assertEquals(Arrays.asList(), compilation.invoke(order, "getLines"));
+        assertTrue(compilation.getGeneratedSource("org.test.OrderBuilder")
+                .contains("private java.util.List<java.lang.String> lines = null;"));
+
+        builder = compilation.invoke(compilation.loadClass("org.test.OrderBuilder"), "create");
+        compilation.invoke(builder, "setLines", new Object[]{null});
+        assertNull(compilation.invoke(compilation.invoke(builder, "build"), "getLines"));
+    }
+
+    @Test
+    public void testBulkCollectionAdders() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Invoice",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "public class Invoice {",
+                        "    private List<String> lines;",
+                        "    public List<String> getLines() { return lines; }",
+                        "    public void setLines(List<String> lines) { this.lines = lines; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> builderClass = compilation.loadClass("org.test.InvoiceBuilder");
+        Object builder = compilation.invoke(builderClass, "create");
+        compilation.invoke(builder, "expectedLinesSize", 4);
+        compilation.invoke(builder, "addLines", "a");
+        builderClass.getMethod("addLines", String[].class).invoke(builder, (Object) new String[]{"b", "c"});
+        compilation.invoke(builder, "addAllLines", Arrays.asList("d", "e"));
+        Object invoice = compilation.invoke(builder, "build");
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), compilation.invoke(invoice, "getLines"));
+    }
+
+    @Test
+    public void testPrimitiveArrayBuffer() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Telemetry",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "public class Telemetry {",
+                        "    private long[] samples;",
+                        "    public long[] getSamples() { return samples; }",
+                        "    public void setSamples(long[] samples) { this.samples = samples; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> builderClass = compilation.loadClass("org.test.TelemetryBuilder");
+        long[] initial = {1L, 2L};
+        Object builder = compilation.invoke(builderClass, "create");
+        compilation.invoke(builder, "setSamples", (Object) initial);
+        for (long i = 3; i <= 20; i++) {
+            compilation.invoke(builder, "addSamples", i);
+        }
+        builderClass.getMethod("addSamples", long[].class).invoke(builder, (Object) new long[]{21L, 22L});
+        long[] samples = (long[]) compilation.invoke(compilation.invoke(builder, "build"), "getSamples");
+
+        assertEquals(22, samples.length);
+        assertEquals(22L, samples[21]);
+        assertArrayEquals(new long[]{1L, 2L}, initial);
+        Object empty = compilation.invoke(compilation.invoke(builderClass, "create"), "build");
+        assertNull(compilation.invoke(empty, "getSamples"));
+    }
+
+    @Test
+    public void testValueClass() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Point",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "@info.narmontas.jpatterns.annotation.ValuePattern",
+                        "public interface Point {",
+                        "    int getX();",
+                        "    double getY();",
+                        "    List<String> getTags();",
+                        "    default String getLabel() { return getX() + \":\" + getY(); }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> valueClass = compilation.loadClass("org.test.PointValue");
+        assertTrue(java.lang.reflect.Modifier.isFinal(valueClass.getModifiers()));
+        for (java.lang.reflect.Field field: valueClass.getDeclaredFields()) {
+            if (!field.getName().equals("cachedHashCode")) {
+                assertTrue(java.lang.reflect.Modifier.isFinal(field.getModifiers()), field.getName());
+            }
+        }
+
+        Class<?> builderClass = compilation.loadClass("org.test.PointBuilder");
+        Object point = buildPoint(compilation, builderClass);
+        Object samePoint = buildPoint(compilation, builderClass);
+        assertEquals(valueClass, point.getClass());
+        assertEquals(2, compilation.invoke(point, "getX"));
+        assertEquals(Arrays.asList("a"), compilation.invoke(point, "getTags"));
+        assertEquals("2:3.5", compilation.invoke(point, "getLabel"));
+        assertEquals(point, samePoint);
+        assertEquals(point.hashCode(), samePoint.hashCode());
+        assertTrue(point.toString().startsWith("Point{"), point.toString());
+    }
+
+    private Object buildPoint(Compilation compilation, Class<?> builderClass) throws Exception {
+        Object builder = compilation.invoke(builderClass, "create");
+        compilation.invoke(builder, "setX", 2);
+        compilation.invoke(builder, "setY", 3.5);
+        compilation.invoke(builder, "addTags", "a");
+        return compilation.invoke(builder, "build");
+    }
+
+    @Test
+    public void testValueClassIsNotChangedByBuilder() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Series",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "@info.narmontas.jpatterns.annotation.ValuePattern",
+                        "public interface Series {",
+                        "    List<String> getTags();",
+                        "    long[] getSamples();",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Object builder = compilation.invoke(compilation.loadClass("org.test.SeriesBuilder"), "create");
+        compilation.invoke(builder, "addTags", "a");
+        compilation.invoke(builder, "addSamples", 1L);
+        Object first = compilation.invoke(builder, "build");
+        compilation.invoke(builder, "addTags", "b");
+        compilation.invoke(builder, "addSamples", 2L);
+        compilation.invoke(builder, "build");
+
+        assertEquals(Arrays.asList("a"), compilation.invoke(first, "getTags"));
+        long[] samples = (long[]) compilation.invoke(first, "getSamples");
+        assertArrayEquals(new long[]{1L}, samples);
+        samples[0] = 7L;
+        assertArrayEquals(new long[]{1L}, (long[]) compilation.invoke(first, "getSamples"));
+        java.util.List<?> tags = (java.util.List<?>) compilation.invoke(first, "getTags");
+        assertThrows(UnsupportedOperationException.class, () -> tags.clear());
+    }
+
+    @Test
+    public void testCachedHashCodeAfterBuilderChange() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Labels",
+                        "package org.test;",
+                        "import java.util.Set;",
+                        "@info.narmontas.jpatterns.annotation.ValuePattern",
+                        "public interface Labels {",
+                        "    Set<String> getNames();",
+                        "    int[] getCodes();",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> builderClass = compilation.loadClass("org.test.LabelsBuilder");
+        Object builder = compilation.invoke(builderClass, "create");
+        compilation.invoke(builder, "addNames", "a");
+        compilation.invoke(builder, "addCodes", 1);
+        Object first = compilation.invoke(builder, "build");
+        int firstHash = first.hashCode();
+        java.util.Set<Object> set = new java.util.HashSet<>();
+        set.add(first);
+
+        compilation.invoke(builder, "addNames", "b");
+        compilation.invoke(builder, "addCodes", 2);
+        Object second = compilation.invoke(builder, "build");
+
+        Object other = compilation.invoke(builderClass, "create");
+        compilation.invoke(other, "addNames", "a");
+        compilation.invoke(other, "addCodes", 1);
+        Object same = compilation.invoke(other, "build");
+
+        assertEquals(firstHash, first.hashCode());
+        assertNotEquals(first, second);
+        assertEquals(first, same);
+        assertEquals(first.hashCode(), same.hashCode());
+        assertTrue(set.contains(same));
+        assertFalse(set.contains(second));
+    }
+
+    @Test
+    public void testRawCollectionProperty() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Bag",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "@SuppressWarnings(\"rawtypes\")",
+                        "public class Bag {",
+                        "    private List items;",
+                        "    public List getItems() { return items; }",
+                        "    public void setItems(List items) { this.items = items; }",
+                        "}")
+                .compile();
+        assertFalse(compilation.isSuccess());
+        assertTrue(compilation.getErrors()
+                .contains("Collection property items of org.test.Bag should have a type argument"),
+                compilation.getErrors());
+        assertFalse(compilation.getErrors().contains("uncaught exception"), compilation.getErrors());
+    }
+
+    @Test
+    public void testValueClassWithNotGetterAbstractMethod() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Account",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.ValuePattern",
+                        "public abstract class Account {",
+                        "    public abstract long getId();",
+                        "    public abstract void close();",
+                        "}")
+                .compile();
+        assertFalse(compilation.isSuccess());
+        assertTrue(compilation.getErrors().contains("Abstract method close"), compilation.getErrors());
+    }
+
+    @Test
+    public void testEqualityClass() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Key",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(equality = true)",
+                        "public class Key {",
+                        "    private long id;",
+                        "    private double weight;",
+                        "    private String name;",
+                        "    public long getId() { return id; }",
+                        "    public void setId(long id) { this.id = id; }",
+                        "    public double getWeight() { return weight; }",
+                        "    public void setWeight(double weight) { this.weight = weight; }",
+                        "    public String getName() { return name; }",
+                        "    public void setName(String name) { this.name = name; }",
+                        "    @Override public boolean equals(Object obj) { return KeyEquality.equals(this, obj); }",
+                        "    @Override public int hashCode() { return KeyEquality.hashCode(this); }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> builderClass = compilation.loadClass("org.test.KeyBuilder");
+        Object key = buildKey(compilation, builderClass, 1L, Double.NaN);
+        Object sameKey = buildKey(compilation, builderClass, 1L, Double.NaN);
+        Object otherKey = buildKey(compilation, builderClass, 2L, Double.NaN);
+        assertEquals(key, sameKey);
+        assertEquals(key.hashCode(), sameKey.hashCode());
+        assertNotEquals(key, otherKey);
+        assertNotEquals(key, null);
+    }
+
+    private Object buildKey(Compilation compilation, Class<?> builderClass, long id, double weight) throws Exception {
+        Object builder = compilation.invoke(builderClass, "create");
+        compilation.invoke(builder, "setId", id);
+        compilation.invoke(builder, "setWeight", weight);
+        compilation.invoke(builder, "setName", "key");
+        return compilation.invoke(builder, "build");
+    }
+
+    @Test
+    public void testValueClassWithoutCachedHashCode() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Money",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.ValuePattern(cacheHashCode = false)",
+                        "public abstract class Money {",
+                        "    public abstract long getAmount();",
+                        "    public abstract String getCurrency();",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> valueClass = compilation.loadClass("org.test.MoneyValue");
+        assertEquals(2, valueClass.getDeclaredFields().length);
+        Object builder = compilation.invoke(compilation.loadClass("org.test.MoneyBuilder"), "create");
+        compilation.invoke(builder, "setAmount", 5L);
+        compilation.invoke(builder, "setCurrency", "EUR");
+        Object money = compilation.invoke(builder, "build");
+        Object sameMoney = compilation.invoke(builder, "build");
+        assertNotSame(money, sameMoney);
+        assertEquals(money, sameMoney);
+        assertEquals(money.hashCode(), sameMoney.hashCode());
+    }
+
+    @Test
+    public void testBuilderFromSourceCopiesCollectionsOnWrite() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Order",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "public class Order {",
+                        "    private long id;",
+                        "    private List<String> lines;",
+                        "    private int[] quantities;",
+                        "    public long getId() { return id; }",
+                        "    public void setId(long id) { this.id = id; }",
+                        "    public List<String> getLines() { return lines; }",
+                        "    public void setLines(List<String> lines) { this.lines = lines; }",
+                        "    public int[] getQuantities() { return quantities; }",
+                        "    public void setQuantities(int[] quantities) { this.quantities = quantities; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> builderClass = compilation.loadClass("org.test.OrderBuilder");
+        Object builder = compilation.invoke(builderClass, "create");
+        compilation.invoke(builder, "setId", 1L);
+        compilation.invoke(builder, "addLines", "a");
+        compilation.invoke(builder, "addQuantities", 1);
+        Object source = compilation.invoke(builder, "build");
+
+        Object copy = compilation.invoke(compilation.invoke(builderClass, "from", source), "build");
+        assertEquals(1L, compilation.invoke(copy, "getId"));
+        assertSame(compilation.invoke(source, "getLines"), compilation.invoke(copy, "getLines"));
+
+        Object changedBuilder = compilation.invoke(builderClass, "from", source);
+        compilation.invoke(changedBuilder, "addLines", "b");
+        compilation.invoke(changedBuilder, "addQuantities", 2);
+        Object changed = compilation.invoke(changedBuilder, "build");
+        assertEquals(Arrays.asList("a", "b"), compilation.invoke(changed, "getLines"));
+        assertArrayEquals(new int[]{1, 2}, (int[]) compilation.invoke(changed, "getQuantities"));
+        assertEquals(Arrays.asList("a"), compilation.invoke(source, "getLines"));
+        assertArrayEquals(new int[]{1}, (int[]) compilation.invoke(source, "getQuantities"));
+    }
+
+    @Test
+    public void testValueClassWithWildcardTypeInDeclarationOrder() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Series",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "import java.util.Map;",
+                        "@info.narmontas.jpatterns.annotation.ValuePattern",
+                        "public interface Series {",
+                        "    String getName();",
+                        "    Map<String, List<? extends Number>> getPoints();",
+                        "    long getCount();",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        String source = compilation.getGeneratedSource("org.test.SeriesValue");
+        assertTrue(source.contains("List<? extends java.lang.Number>> getPoints() {"), source);
+        int name = source.indexOf("java.lang.String name, ");
+        int points = source.indexOf("> points, ");
+        int count = source.indexOf("long count)");
+        assertTrue(name > 0 && name < points && points < count, source);
+        assertTrue(source.contains("\"Series{name=\" + name + \", points=\" + points + \", count=\" + count"), source);
+    }
+
+    @Test
+    public void testParallelRenderingProducesSameSources() throws Exception {
+        Compilation sequential = valueAndEqualityCompilation(new Compilation(workDir.resolve("sequential")))
+                .addOption("-Ajpatterns.parallelism=1")
+                .compile();
+        Compilation parallel = valueAndEqualityCompilation(new Compilation(workDir.resolve("parallel")))
+                .addOption("-Ajpatterns.parallelism=4")
+                .compile();
+        assertTrue(sequential.isSuccess(), sequential.getErrors());
+        assertTrue(parallel.isSuccess(), parallel.getErrors());
+        for (String name: new String[]{"org.test.PersonBuilder", "org.test.PointBuilder",
+                "org.test.PointValue", "org.test.KeyBuilder", "org.test.KeyEquality"}) {
+            assertEquals(sequential.getGeneratedSource(name), parallel.getGeneratedSource(name), name);
+        }
+    }
+
+    @Test
+    public void testRecordBuilder() throws Exception {
+        Assumptions.assumeTrue(SourceVersion.latestSupported().ordinal() >= 16, "records need Java 16");
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Line",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(equality = true)",
+                        "public record Line(long id, String name, java.util.List<String> tags, int[] counts) {",
+                        "    public String getLabel() { return name + id; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        String source = compilation.getGeneratedSource("org.test.LineBuilder");
+        assertTrue(source.contains("return new org.test.Line(id, name, tags, counts);"), source);
+        Object builder = compilation.invoke(compilation.loadClass("org.test.LineBuilder"), "create");
+        compilation.invoke(builder, "setId", 3L);
+        compilation.invoke(builder, "setName", "a");
+        compilation.invoke(builder, "addTags", "x");
+        compilation.invoke(builder, "addCounts", 5);
+        Object line = compilation.invoke(builder, "build");
+        assertEquals(3L, compilation.invoke(line, "id"));
+        assertEquals(Arrays.asList("x"), compilation.invoke(line, "tags"));
+        assertArrayEquals(new int[]{5}, (int[]) compilation.invoke(line, "counts"));
+
+        Object copy = compilation.invoke(compilation.invoke(compilation.loadClass("org.test.LineBuilder"),
+                "from", line), "build");
+        Class<?> equality = compilation.loadClass("org.test.LineEquality");
+        assertEquals(true, compilation.invoke(equality, "equals", line, copy));
+    }
+
+    @Test
+    public void testConstructorBuilder() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Money",
+                        "package org.test;",
+                        "public final class Money {",
+                        "    private final long amount;",
+                        "    private final String currency;",
+                        "    public Money(String currency) { this(0, currency); }",
+                        "    @info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "    public Money(long amount, String currency) {",
+                        "        this.amount = amount;",
+                        "        this.currency = currency;",
+                        "    }",
+                        "    public long getAmount() { return amount; }",
+                        "    public String getCurrency() { return currency; }",
+                        "}")
+                .addSource("org.test.Range",
+                        "package org.test;",
+                        "public final class Range {",
+                        "    private final int span;",
+                        "    @info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "    Range(int from, int to) { this.span = to - from; }",
+                        "    public int getSpan() { return span; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Object builder = compilation.invoke(compilation.loadClass("org.test.MoneyBuilder"), "create");
+        compilation.invoke(builder, "setAmount", 5L);
+        compilation.invoke(builder, "setCurrency", "EUR");
+        Object money = compilation.invoke(builder, "build");
+        assertEquals(5L, compilation.invoke(money, "getAmount"));
+        assertEquals("EUR", compilation.invoke(money, "getCurrency"));
+
+        String range = compilation.getGeneratedSource("org.test.RangeBuilder");
+        assertTrue(range.contains("return new org.test.Range(from, to);"), range);
+        assertFalse(range.contains(" from(org.test.Range source)"), range);
+    }
+
+    @Test
+    public void testClassAndConstructorAnnotated() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Pair",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "public class Pair {",
+                        "    private int left;",
+                        "    @info.narmontas.jpatterns.annotation.BuilderPattern",
+                        "    public Pair(int left) { this.left = left; }",
+                        "    public int getLeft() { return left; }",
+                        "}")
+                .compile();
+        assertFalse(compilation.isSuccess());
+        assertTrue(compilation.getErrors().contains("either to the class org.test.Pair or to one of its constructors"),
+                compilation.getErrors());
+    }
+
+    @Test
+    public void testFlyweight() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Quote",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.FlyweightPattern",
+                        "public class Quote {",
+                        "    private int instrumentId;",
+                        "    private double lastPrice;",
+                        "    private boolean active;",
+                        "    public int getInstrumentId() { return instrumentId; }",
+                        "    public void setInstrumentId(int instrumentId) { this.instrumentId = instrumentId; }",
+                        "    public double getLastPrice() { return lastPrice; }",
+                        "    public void setLastPrice(double lastPrice) { this.lastPrice = lastPrice; }",
+                        "    public boolean isActive() { return active; }",
+                        "    public void setActive(boolean active) { this.active = active; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> flyweightClass = compilation.loadClass("org.test.QuoteFlyweight");
+        assertEquals(16, flyweightClass.getField("SIZE").getInt(null));
+        java.nio.ByteBuffer buffer = (java.nio.ByteBuffer) compilation.invoke(flyweightClass, "allocateDirect", 3);
+        assertEquals(3, compilation.invoke(flyweightClass, "slots", buffer));
+
+        Object builder = compilation.invoke(compilation.loadClass("org.test.QuoteBuilder"), "create");
+        compilation.invoke(builder, "setInstrumentId", 7);
+        compilation.invoke(builder, "setLastPrice", 1.5);
+        compilation.invoke(builder, "setActive", true);
+        compilation.invoke(builder, "writeTo", buffer, 2);
+
+        Object flyweight = compilation.invoke(flyweightClass.getDeclaredConstructor().newInstance(), "wrap", buffer, 2);
+        assertEquals(7, compilation.invoke(flyweight, "getInstrumentId"));
+        assertEquals(1.5, compilation.invoke(flyweight, "getLastPrice"));
+        assertEquals(true, compilation.invoke(flyweight, "isActive"));
+
+        compilation.invoke(flyweight, "setLastPrice", 2.5);
+        Object quote = compilation.invoke(compilation.invoke(flyweight, "toBuilder"), "build");
+        assertEquals(2.5, compilation.invoke(quote, "getLastPrice"));
+        assertEquals(7, compilation.invoke(quote, "getInstrumentId"));
+        assertEquals(0.0, buffer.getDouble(0), "slot 0 is not written");
+    }
+
+    @Test
+    public void testFlyweightWithReferenceProperty() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Tick",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.FlyweightPattern",
+                        "public class Tick {",
+                        "    private long time;",
+                        "    private String symbol;",
+                        "    public long getTime() { return time; }",
+                        "    public void setTime(long time) { this.time = time; }",
+                        "    public String getSymbol() { return symbol; }",
+                        "    public void setSymbol(String symbol) { this.symbol = symbol; }",
+                        "}")
+                .compile();
+        assertFalse(compilation.isSuccess());
+        assertTrue(compilation.getErrors().contains("should have primitive properties only, not primitive: symbol"),
+                compilation.getErrors());
+    }
+
+    @Test
+    public void testCodec() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Order",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(codec = true)",
+                        "public class Order {",
+                        "    public enum Side { BUY, SELL }",
+                        "    private long id;",
+                        "    private String name;",
+                        "    private Integer quantity;",
+                        "    private Side side;",
+                        "    private List<String> tags;",
+                        "    public long getId() { return id; }",
+                        "    public void setId(long id) { this.id = id; }",
+                        "    public String getName() { return name; }",
+                        "    public void setName(String name) { this.name = name; }",
+                        "    public Integer getQuantity() { return quantity; }",
+                        "    public void setQuantity(Integer quantity) { this.quantity = quantity; }",
+                        "    public Side getSide() { return side; }",
+                        "    public void setSide(Side side) { this.side = side; }",
+                        "    public List<String> getTags() { return tags; }",
+                        "    public void setTags(List<String> tags) { this.tags = tags; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> sideClass = compilation.loadClass("org.test.Order$Side");
+        Object builder = compilation.invoke(compilation.loadClass("org.test.OrderBuilder"), "create");
+        compilation.invoke(builder, "setId", 5L);
+        compilation.invoke(builder, "setName", "order");
+        compilation.invoke(builder, "setSide", sideClass.getEnumConstants()[1]);
+        compilation.invoke(builder, "addTags", "a");
+        compilation.invoke(builder, "addTags", (Object) null);
+        Object order = compilation.invoke(builder, "build");
+
+        Class<?> codecClass = compilation.loadClass("org.test.OrderCodec");
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        compilation.invoke(codecClass, "write", order, new java.io.DataOutputStream(bytes));
+        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(64);
+        compilation.invoke(codecClass, "write", order, buffer);
+        assertEquals(bytes.size(), buffer.position());
+        buffer.flip();
+
+        Object[] copies = {
+                compilation.invoke(codecClass, "read",
+                        new java.io.DataInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray()))),
+                compilation.invoke(codecClass, "read", buffer)
+        };
+        for (Object copy: copies) {
+            assertEquals(5L, compilation.invoke(copy, "getId"));
+            assertEquals("order", compilation.invoke(copy, "getName"));
+            assertNull(compilation.invoke(copy, "getQuantity"));
+            assertEquals(sideClass.getEnumConstants()[1], compilation.invoke(copy, "getSide"));
+            assertEquals(Arrays.asList("a", null), compilation.invoke(copy, "getTags"));
+        }
+    }
+
+    @Test
+    public void testCodecWithUnsupportedProperty() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Event",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(codec = true)",
+                        "public class Event {",
+                        "    private java.util.Date time;",
+                        "    public java.util.Date getTime() { return time; }",
+                        "    public void setTime(java.util.Date time) { this.time = time; }",
+                        "}")
+                .compile();
+        assertFalse(compilation.isSuccess());
+        assertTrue(compilation.getErrors().contains("Codec cannot encode property time of type java.util.Date"),
+                compilation.getErrors());
+    }
+
+    @Test
+    public void testPropertyTable() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Account",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(properties = true)",
+                        "public class Account {",
+                        "    private long accountId;",
+                        "    private String owner;",
+                        "    private List<String> tags;",
+                        "    public long getAccountId() { return accountId; }",
+                        "    public void setAccountId(long accountId) { this.accountId = accountId; }",
+                        "    public String getOwner() { return owner; }",
+                        "    public void setOwner(String owner) { this.owner = owner; }",
+                        "    public List<String> getTags() { return tags; }",
+                        "    public void setTags(List<String> tags) { this.tags = tags; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> tableClass = compilation.loadClass("org.test.AccountProperties");
+        assertEquals(Arrays.asList("accountId", "owner", "tags"), tableClass.getField("NAMES").get(null));
+        int accountId = tableClass.getField("ACCOUNT_ID").getInt(null);
+        assertEquals(accountId, compilation.invoke(tableClass, "idOf", "accountId"));
+        assertEquals(-1, compilation.invoke(tableClass, "idOf", "unknown"));
+        assertEquals(long.class, compilation.invoke(tableClass, "typeOf", accountId));
+
+        Object builder = compilation.invoke(compilation.loadClass("org.test.AccountBuilder"), "create");
+        compilation.invoke(tableClass, "set", builder, accountId, 9L);
+        compilation.invoke(tableClass, "set", builder, compilation.invoke(tableClass, "idOf", "owner"), "Ann");
+        compilation.invoke(tableClass, "set", builder, tableClass.getField("TAGS").getInt(null), Arrays.asList("x"));
+        Object account = compilation.invoke(builder, "build");
+        assertEquals(9L, compilation.invoke(tableClass, "get", account, accountId));
+        assertEquals("Ann", compilation.invoke(account, "getOwner"));
+        assertEquals(Arrays.asList("x"), compilation.invoke(account, "getTags"));
+    }
+
+    @Test
+    public void testPropertyTableWithGenericReference() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addOption("-Xlint:unchecked")
+                .addOption("-Werror")
+                .addSource("org.test.Settings",
+                        "package org.test;",
+                        "import java.util.Map;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(properties = true)",
+                        "public class Settings {",
+                        "    private Map<String, Integer> limits;",
+                        "    public Map<String, Integer> getLimits() { return limits; }",
+                        "    public void setLimits(Map<String, Integer> limits) { this.limits = limits; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        assertTrue(compilation.getGeneratedSource("org.test.SettingsProperties")
+                .contains("@java.lang.SuppressWarnings(\"unchecked\")"));
+    }
+
+    @Test
+    public void testRowReader() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Trade",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(rowReader = true)",
+                        "public class Trade {",
+                        "    public enum Side { BUY, SELL }",
+                        "    private long tradeId;",
+                        "    private String symbol;",
+                        "    private Integer quantity;",
+                        "    private Side side;",
+                        "    public long getTradeId() { return tradeId; }",
+                        "    public void setTradeId(long tradeId) { this.tradeId = tradeId; }",
+                        "    public String getSymbol() { return symbol; }",
+                        "    public void setSymbol(String symbol) { this.symbol = symbol; }",
+                        "    public Integer getQuantity() { return quantity; }",
+                        "    public void setQuantity(Integer quantity) { this.quantity = quantity; }",
+                        "    public Side getSide() { return side; }",
+                        "    public void setSide(Side side) { this.side = side; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        Class<?> readerClass = compilation.loadClass("org.test.TradeRowReader");
+        Object sell = compilation.loadClass("org.test.Trade$Side").getEnumConstants()[1];
+
+        List<Object> trades = new ArrayList<>();
+        java.util.function.Consumer<Object> consumer = trades::add;
+        String csv = "TRADE_ID,symbol,quantity,side,comment\n7,ABC,10,SELL,x\n8,XYZ,,,\n";
+        compilation.invoke(readerClass, "readAll", new java.io.BufferedReader(new java.io.StringReader(csv)), consumer);
+        assertEquals(2, trades.size());
+        assertEquals(7L, compilation.invoke(trades.get(0), "getTradeId"));
+        assertEquals(10, compilation.invoke(trades.get(0), "getQuantity"));
+        assertEquals(sell, compilation.invoke(trades.get(0), "getSide"));
+        assertEquals("XYZ", compilation.invoke(trades.get(1), "getSymbol"));
+        assertNull(compilation.invoke(trades.get(1), "getQuantity"));
+        assertNull(compilation.invoke(trades.get(1), "getSide"));
+
+        trades.clear();
+        csv = "symbol,trade_id,quantity,comment\n\"A,B\",1,2,\"say \"\"hi\"\"\"\n\n\"C\nD\",3,4,x\n";
+        compilation.invoke(readerClass, "readAll", new java.io.BufferedReader(new java.io.StringReader(csv)), consumer);
+        assertEquals(2, trades.size());
+        assertEquals("A,B", compilation.invoke(trades.get(0), "getSymbol"));
+        assertEquals(1L, compilation.invoke(trades.get(0), "getTradeId"));
+        assertEquals(2, compilation.invoke(trades.get(0), "getQuantity"));
+        assertEquals("C\nD", compilation.invoke(trades.get(1), "getSymbol"));
+        assertEquals(4, compilation.invoke(trades.get(1), "getQuantity"));
+        String[] fields = (String[]) compilation.invoke(readerClass, "readFields",
+                new java.io.BufferedReader(new java.io.StringReader("1,\"a,b\",\"say \"\"hi\"\"\",\n")));
+        assertArrayEquals(new String[]{"1", "a,b", "say \"hi\"", ""}, fields);
+
+        trades.clear();
+        compilation.invoke(readerClass, "readAll", resultSet(new String[]{"symbol", "trade_id", "quantity", "side"},
+                new Object[][]{{"DEF", 9L, null, "SELL"}}), consumer);
+        assertEquals(1, trades.size());
+        assertEquals(9L, compilation.invoke(trades.get(0), "getTradeId"));
+        assertEquals("DEF", compilation.invoke(trades.get(0), "getSymbol"));
+        assertNull(compilation.invoke(trades.get(0), "getQuantity"));
+        assertEquals(sell, compilation.invoke(trades.get(0), "getSide"));
+    }
+
+    // In-memory ResultSet: metadata labels, next(), getString/getLong/getInt and wasNull() only
+    private static java.sql.ResultSet resultSet(String[] labels, Object[][] rows) {
+        ClassLoader loader = BuilderPatternProcessorTest.class.getClassLoader();
+        Object metaData = Proxy.newProxyInstance(loader, new Class<?>[]{java.sql.ResultSetMetaData.class},
+                (proxy, method, args) -> method.getName().equals("getColumnCount")
+                        ? labels.length : labels[(Integer) args[0] - 1]);
+        int[] row = {-1};
+        Object[] last = {null};
+        return (java.sql.ResultSet) Proxy.newProxyInstance(loader, new Class<?>[]{java.sql.ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return metaData;
+                        case "next":
+                            return ++row[0] < rows.length;
+                        case "wasNull":
+                            return last[0] == null;
+                        default:
+                            last[0] = rows[row[0]][(Integer) args[0] - 1];
+                            if (last[0] == null) {
+                                return method.getReturnType().isPrimitive() ? (Object) 0 : null;
+                            }
+                            return method.getReturnType() == String.class ? last[0].toString() : last[0];
+                    }
+                });
+    }
+
+    @Test
+    public void testBatchBuild() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Sample",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(batch = true)",
+                        "public class Sample {",
+                        "    private long id;",
+                        "    private String name;",
+                        "    private List<String> tags;",
+                        "    public long getId() { return id; }",
+                        "    public void setId(long id) { this.id = id; }",
+                        "    public String getName() { return name; }",
+                        "    public void setName(String name) { this.name = name; }",
+                        "    public List<String> getTags() { return tags; }",
+                        "    public void setTags(List<String> tags) { this.tags = tags; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        String source = compilation.getGeneratedSource("org.test.SampleBuilder");
+        assertTrue(source.contains("buildAll(int n, long[] idColumn, java.lang.String[] nameColumn, "
+                + "java.util.List<java.lang.String>[] tagsColumn)"), source);
+
+        Class<?> builderClass = compilation.loadClass("org.test.SampleBuilder");
+        Object[] samples = (Object[]) compilation.invoke(builderClass, "buildAll", 3,
+                new long[]{1, 2, 3, 4}, new String[]{"a", "b", "c"}, null);
+        assertEquals(3, samples.length);
+        assertEquals(2L, compilation.invoke(samples[1], "getId"));
+        assertEquals("c", compilation.invoke(samples[2], "getName"));
+        assertNull(compilation.invoke(samples[2], "getTags"));
+        assertNotSame(samples[0], samples[1]);
+
+        Object[] target = (Object[]) java.lang.reflect.Array.newInstance(compilation.loadClass("org.test.Sample"), 4);
+        compilation.invoke(builderClass, "buildInto", target, 2, 2, new long[]{7, 8}, null, null);
+        assertNull(target[1]);
+        assertEquals(8L, compilation.invoke(target[3], "getId"));
+        assertEquals("", compilation.invoke(target[3], "getName"));
+    }
+
+    @Test
+    public void testBatchColumnsInDeclarationOrder() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Kind",
+                        "package org.test;",
+                        "public enum Kind { A, B }")
+                .addSource("org.test.Point",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "public class Point {",
+                        "    private final int x;",
+                        "    private final int y;",
+                        "    private final String label;",
+                        "    private final List<String> tags;",
+                        "    private final int[] samples;",
+                        "    private final Kind kind;",
+                        "    @info.narmontas.jpatterns.annotation.BuilderPattern(batch = true)",
+                        "    public Point(int x, int y, String label, List<String> tags, int[] samples, Kind kind) {",
+                        "        this.x = x; this.y = y; this.label = label;",
+                        "        this.tags = tags; this.samples = samples; this.kind = kind;",
+                        "    }",
+                        "    public int getX() { return x; }",
+                        "    public int getY() { return y; }",
+                        "    public String getLabel() { return label; }",
+                        "    public List<String> getTags() { return tags; }",
+                        "    public int[] getSamples() { return samples; }",
+                        "    public Kind getKind() { return kind; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        String source = compilation.getGeneratedSource("org.test.PointBuilder");
+        assertTrue(source.contains("buildAll(int n, int[] xColumn, int[] yColumn, java.lang.String[] labelColumn, "
+                + "java.util.List<java.lang.String>[] tagsColumn, int[][] samplesColumn, org.test.Kind[] kindColumn)"),
+                source);
+
+        Object[] points = (Object[]) compilation.invoke(compilation.loadClass("org.test.PointBuilder"), "buildAll", 1,
+                new int[]{1}, new int[]{2}, new String[]{"p"}, null, null, null);
+        assertEquals(1, compilation.invoke(points[0], "getX"));
+        assertEquals(2, compilation.invoke(points[0], "getY"));
+    }
+
+    @Test
+    public void testColumns() throws Exception {
+        Compilation compilation = new Compilation(workDir)
+                .addSource("org.test.Score",
+                        "package org.test;",
+                        "import java.util.List;",
+                        "@info.narmontas.jpatterns.annotation.ColumnsPattern",
+                        "public class Score {",
+                        "    private long userId;",
+                        "    private double value;",
+                        "    private List<String> tags;",
+                        "    public long getUserId() { return userId; }",
+                        "    public void setUserId(long userId) { this.userId = userId; }",
+                        "    public double getValue() { return value; }",
+                        "    public void setValue(double value) { this.value = value; }",
+                        "    public List<String> getTags() { return tags; }",
+                        "    public void setTags(List<String> tags) { this.tags = tags; }",
+                        "}")
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+
+        Class<?> builderClass = compilation.loadClass("org.test.ScoreBuilder");
+        Object columns = compilation.loadClass("org.test.ScoreColumns").getConstructor(int.class).newInstance(1);
+        for (int i = 0; i < 20; i++) {
+            Object builder = compilation.invoke(builderClass, "create");
+            compilation.invoke(builder, "setUserId", (long) i);
+            compilation.invoke(builder, "setValue", i * 0.5);
+            assertEquals(i, compilation.invoke(columns, "add", compilation.invoke(builder, "build")));
+        }
+        assertEquals(20, compilation.invoke(columns, "size"));
+        assertEquals(7L, compilation.invoke(columns, "getUserId", 7));
+        assertTrue(((double[]) compilation.invoke(columns, "valueColumn")).length >= 20);
+
+        compilation.invoke(columns, "setValue", 3, 10.0);
+        double[] total = {0};
+        double[] values = (double[]) compilation.invoke(columns, "valueColumn");
+        java.util.function.IntConsumer sum = i -> total[0] += values[i];
+        compilation.invoke(columns, "forEach", sum);
+        assertEquals(95.0 - 1.5 + 10.0, total[0]);
+
+        Object score = compilation.invoke(columns, "get", 3);
+        assertEquals(3L, compilation.invoke(score, "getUserId"));
+        assertEquals(10.0, compilation.invoke(score, "getValue"));
+
+        compilation.invoke(columns, "clear");
+        assertEquals(0, compilation.invoke(columns, "size"));
+    }
+
+    @Test
+    public void testMetricsReport() throws Exception {
+        Path metrics = workDir.resolve("reports/metrics.json");
+        Compilation compilation = valueAndEqualityCompilation(new Compilation(workDir))
+                .addOption("-Ajpatterns.parallelism=1")
+                .addOption("-Ajpatterns.metrics=" + metrics)
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        String json = new String(Files.readAllBytes(metrics), StandardCharsets.UTF_8);
+        int pointChars = compilation.getGeneratedSource("org.test.PointBuilder").length()
+                + compilation.getGeneratedSource("org.test.PointValue").length();
+        assertTrue(json.contains("{\"name\": \"org.test.Point\", \"round\": 1, \"properties\": 2, "
+                + "\"sources\": 2, \"generatedChars\": " + pointChars + ", "), json);
+        assertTrue(json.contains("\"checkIfElementIsValueType\": "), json);
+        assertTrue(json.contains("\"checkForNoArgumentConstructor\": "), json);
+        assertTrue(json.contains("\"checkIfElementIsPOJO\": "), json);
+        assertTrue(json.contains("\"GENERATION\": {\"nanos\": "), json);
+        assertTrue(json.contains("{\"round\": 1, "), json);
+    }
+
+    @Test
+    public void testMetricsReportCountsRenderingThreads() throws Exception {
+        Path metrics = workDir.resolve("reports/metrics.json");
+        Compilation compilation = valueAndEqualityCompilation(new Compilation(workDir))
+                .addOption("-Ajpatterns.parallelism=4")
+                .addOption("-Ajpatterns.metrics=" + metrics)
+                .compile();
+        assertTrue(compilation.isSuccess(), compilation.getErrors());
+        String json = new String(Files.readAllBytes(metrics), StandardCharsets.UTF_8);
+        Matcher generation = Pattern.compile("\"GENERATION\": \\{\"nanos\": \\d+, \"allocatedBytes\": (-?\\d+)")
+                .matcher(json);
+        assertTrue(generation.find(), json);
+        long allocatedBytes = Long.parseLong(generation.group(1));
+        long generatedChars = 0;
+        for (String name: new String[]{"org.test.PersonBuilder", "org.test.PointBuilder",
+                "org.test.PointValue", "org.test.KeyBuilder", "org.test.KeyEquality"}) {
+            generatedChars += compilation.getGeneratedSource(name).length();
+        }
+        // rendered sources are buffered, so at least their characters are allocated by pool threads
+        assertTrue(allocatedBytes == -1 || allocatedBytes >= generatedChars, json);
+    }
+
+    private Compilation valueAndEqualityCompilation(Compilation compilation) {
+        return personCompilationInto(compilation)
+                .addSource("org.test.Point",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.ValuePattern",
+                        "public interface Point {",
+                        "    int getX();",
+                        "    int getY();",
+                        "}")
+                .addSource("org.test.Key",
+                        "package org.test;",
+                        "@info.narmontas.jpatterns.annotation.BuilderPattern(equality = true)",
+                        "public class Key {",
+                        "    private String name;",
+                        "    public String getName() { return name; }",
+                        "    public void setName(String name) { this.name = name; }",
+                        "}");
+    }
+}
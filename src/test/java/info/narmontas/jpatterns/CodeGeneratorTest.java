@@ -35,6 +35,20 @@ public class CodeGeneratorTest {
         CodeGenerator cg = new CodeGenerator();
         assertThrows(IllegalArgumentException.class,
                 () -> cg.definePackage("wrong literal"));
+        assertThrows(IllegalArgumentException.class,
+                () -> cg.addMethod(new Method("get").setReturnType("java.util.List <String>")));
+    }
+
+    @Test
+    public void testWildcardReturnType() {
+        String actualClass = new CodeGenerator()
+                .defineClass(Encapsulation.PUBLIC, "WildcardTest")
+                .addMethod(new Method("get")
+                        .setReturnType("java.util.Map<String, java.util.List<? extends Number>>")
+                        .addBodyLine("return null;"))
+                .build();
+        assertTrue(actualClass.contains("java.util.Map<String, java.util.List<? extends Number>> get() {"),
+                actualClass);
     }
 
     @Test
@@ -158,4 +172,99 @@ public class CodeGeneratorTest {
 
         assertEquals(expectedClass, actualClass);
     }
+
+    @Test
+    public void testConstants() {
+        String expectedClass =
+                "package org.test;\n\n" +
+                "\npublic class ConstantsTest {\n" +
+                    "\tprivate static final int SIZE = 16;\n" +
+                    "\tpublic static final String NAME = \"name\";\n" +
+                "}";
+
+        CodeGenerator cg = new CodeGenerator();
+        String actualClass = cg.definePackage("org.test")
+                .defineClass(Encapsulation.PUBLIC, "ConstantsTest")
+                .addConstant(Encapsulation.PRIVATE, "int", "SIZE", "16")
+                .addConstant(Encapsulation.PUBLIC, "String", "NAME", "\"name\"")
+                .build();
+
+        assertEquals(expectedClass, actualClass);
+    }
+
+    @Test
+    public void testMethodAnnotations() {
+        String expectedClass =
+                "\npublic class AnnotatedMethodTest {\n" +
+                    "\n\t@Override\n" +
+                    "\tpublic String toString() {\n" +
+                        "\t\treturn \"test\";\n" +
+                    "\t}\n" +
+                "}";
+
+        Method toString =
+                new Method("toString")
+                        .addAnnotation("Override")
+                        .setEncapsulation(Encapsulation.PUBLIC)
+                        .setReturnType("String")
+                        .addBodyLine("return \"test\";");
+
+        String actualClass = new CodeGenerator()
+                .defineClass(Encapsulation.PUBLIC, "AnnotatedMethodTest")
+                .addMethod(toString)
+                .build();
+
+        assertEquals(expectedClass, actualClass);
+    }
+
+    @Test
+    public void testFinalClassWithConstructor() {
+        String expectedClass =
+                "\npublic final class PointValue implements Point {\n" +
+                    "\tprivate final int x;\n" +
+                    "\n\tpublic PointValue(int x) {\n" +
+                        "\t\tthis.x = x;\n" +
+                    "\t}\n" +
+                "}";
+
+        Method constructor =
+                new Method("PointValue")
+                        .setConstructor()
+                        .setEncapsulation(Encapsulation.PUBLIC)
+                        .addParameter("int", "x")
+                        .addBodyLine("this.x = x;");
+
+        String actualClass = new CodeGenerator()
+                .defineFinalClass(Encapsulation.PUBLIC, "PointValue", "Point", true)
+                .addFinalField(Encapsulation.PRIVATE, "int", "x")
+                .addMethod(constructor)
+                .build();
+
+        assertEquals(expectedClass, actualClass);
+    }
+
+    @Test
+    public void testStreamingToSink() {
+        StringBuilder sink = new StringBuilder();
+        CodeGenerator streaming = new CodeGenerator(sink);
+        CodeGenerator buffered = new CodeGenerator();
+        for (CodeGenerator cg: new CodeGenerator[]{streaming, buffered}) {
+            cg.definePackage("org.test")
+                    .defineClass(Encapsulation.PUBLIC, "StreamedClass")
+                    .addField(Encapsulation.PRIVATE, "int", "count")
+                    .addCustomCodeAndOpenBlock("static")
+                    .addCustomLine("System.out.println(\"Hello\");")
+                    .closeBlock()
+                    .addMethod(new Method("getCount")
+                            .setEncapsulation(Encapsulation.PUBLIC)
+                            .setReturnType("int")
+                            .addBodyLineAndOpenBlock("if (count < 0)")
+                            .addBodyLine("return 0;")
+                            .closeBlock()
+                            .addBodyLine("return count;"));
+        }
+
+        assertNull(streaming.build());
+        assertEquals(buffered.build(), sink.toString());
+    }
 }
@@ -0,0 +1,130 @@
+package info.narmontas.jpatterns;
+
+import info.narmontas.jpatterns.processor.BuilderPatternProcessor;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles test sources in-process with BuilderPatternProcessor
+ * and gives access to generated sources and compiled classes.
+ */
+class Compilation {
+    private final Path sourceDir;
+    private final Path generatedDir;
+    private final Path classesDir;
+    private final Map<String, String> sources = new LinkedHashMap<>();
+    private final List<String> options = new ArrayList<>();
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    private boolean success;
+    private ClassLoader classLoader;
+
+    Compilation(Path workDir) {
+        this.sourceDir = workDir.resolve("src");
+        this.generatedDir = workDir.resolve("generated");
+        this.classesDir = workDir.resolve("classes");
+    }
+
+    Compilation addSource(String className, String... lines) {
+        sources.put(className, String.join("\n", lines));
+        return this;
+    }
+
+    Compilation addOption(String option) {
+        options.add(option);
+        return this;
+    }
+
+    Compilation compile() throws IOException {
+        Files.createDirectories(sourceDir);
+        Files.createDirectories(generatedDir);
+        Files.createDirectories(classesDir);
+        List<Path> files = new ArrayList<>();
+        for (Map.Entry<String, String> source: sources.entrySet()) {
+            Path file = sourceDir.resolve(source.getKey().replace('.', '/') + ".java");
+            Files.createDirectories(file.getParent());
+            Files.write(file, source.getValue().getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager =
+                     compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> arguments = new ArrayList<>(Arrays.asList(
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-s", generatedDir.toString(),
+                    "-d", classesDir.toString()));
+            arguments.addAll(options);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    arguments, null, fileManager.getJavaFileObjectsFromPaths(files));
+            task.setProcessors(Arrays.asList(new BuilderPatternProcessor()));
+            success = task.call();
+        }
+        classLoader = new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, getClass().getClassLoader());
+        return this;
+    }
+
+    boolean isSuccess() {
+        return success;
+    }
+
+    String getErrors() {
+        return diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .map(diagnostic -> diagnostic.getMessage(null))
+                .collect(Collectors.joining("\n"));
+    }
+
+    String getNotes() {
+        return diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.NOTE)
+                .map(diagnostic -> diagnostic.getMessage(null))
+                .collect(Collectors.joining("\n"));
+    }
+
+    String getGeneratedSource(String className) throws IOException {
+        Path file = generatedDir.resolve(className.replace('.', '/') + ".java");
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    Class<?> loadClass(String className) throws ClassNotFoundException {
+        return classLoader.loadClass(className);
+    }
+
+    Object invoke(Object target, String methodName, Object... args) throws ReflectiveOperationException {
+        Class<?> type = target instanceof Class ? (Class<?>) target : target.getClass();
+        for (java.lang.reflect.Method method: type.getMethods()) {
+            if (method.getName().equals(methodName) && method.getParameterCount() == args.length
+                    && !method.isVarArgs() && accepts(method.getParameterTypes(), args)) {
+                return method.invoke(target instanceof Class ? null : target, args);
+            }
+        }
+        throw new NoSuchMethodException(type.getName() + "." + methodName);
+    }
+
+    // Overloads are told apart by reference arguments, primitive parameters accept any boxed value
+    private static boolean accepts(Class<?>[] parameterTypes, Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] != null && !parameterTypes[i].isPrimitive() && !parameterTypes[i].isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}